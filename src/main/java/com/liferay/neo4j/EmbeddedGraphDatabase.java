@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j;
+
+import com.liferay.neo4j.result.EmbeddedStatementResult;
+import com.liferay.neo4j.writebehind.WriteBehindQueue;
+import org.neo4j.driver.v1.Statement;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the embedded Neo4j engine used by {@link GraphDatabase}. Every reference to the engine API is kept in this
+ * class, so {@link GraphDatabase} can be loaded and used over Bolt when the embedded engine fragment is not installed.
+ *
+ * @author Mate Thurzo
+ */
+class EmbeddedGraphDatabase {
+
+	EmbeddedGraphDatabase(String embeddedDatabasePath) {
+		GraphDatabaseFactory graphDatabaseFactory = new GraphDatabaseFactory();
+
+		_graphDatabaseService = graphDatabaseFactory.newEmbeddedDatabase(new File(embeddedDatabasePath));
+
+		_threadToStatementContextBridge = ((GraphDatabaseAPI)_graphDatabaseService).getDependencyResolver(
+			).resolveDependency(ThreadToStatementContextBridge.class);
+	}
+
+	GraphDatabaseService getGraphDatabaseService() {
+		return _graphDatabaseService;
+	}
+
+	EmbeddedStatementResult run(String statement) {
+		return run(statement, Collections.emptyMap());
+	}
+
+	/**
+	 * Executes a statement in a new transaction. The transaction is unbound from the calling thread before this method
+	 * returns and the result binds it again around every read, so a result which is failed, abandoned or read on
+	 * another thread never leaves a transaction bound to a pooled thread. When the calling thread already has a
+	 * transaction, the statement joins it and the transaction stays with its owner.
+	 */
+	EmbeddedStatementResult run(String statement, Map<String, Object> parameters) {
+		long startNanos = System.nanoTime();
+
+		boolean nested = _threadToStatementContextBridge.hasTransaction();
+
+		Transaction transaction = _graphDatabaseService.beginTx();
+
+		try {
+			Result result = _graphDatabaseService.execute(statement, parameters);
+
+			if (nested) {
+				return new EmbeddedStatementResult(new Statement(statement, parameters), transaction, result, startNanos);
+			}
+
+			KernelTransaction kernelTransaction = _threadToStatementContextBridge.getKernelTransactionBoundToThisThread(
+				true);
+
+			EmbeddedStatementResult embeddedStatementResult = new EmbeddedStatementResult(
+				new Statement(statement, parameters), transaction, result, startNanos,
+				() -> _bindTransaction(kernelTransaction));
+
+			_threadToStatementContextBridge.unbindTransactionFromCurrentThread();
+
+			return embeddedStatementResult;
+		}
+		catch (RuntimeException re) {
+			transaction.failure();
+			transaction.close();
+
+			throw re;
+		}
+	}
+
+	/**
+	 * Executes a batch of writes in a single transaction. The rows of every result are pulled before it is closed, the
+	 * same way {@link EmbeddedStatementResult#consume()} does, since the engine executes a write statement lazily and
+	 * closing its result early would skip the writes of the rows not pulled yet.
+	 */
+	void runWriteBatch(List<WriteBehindQueue.Write> writes) {
+		try (Transaction transaction = _graphDatabaseService.beginTx()) {
+			for (WriteBehindQueue.Write write : writes) {
+				try (Result result = _graphDatabaseService.execute(write.getStatement(), write.getParameters())) {
+					while (result.hasNext()) {
+						result.next();
+					}
+				}
+			}
+
+			transaction.success();
+		}
+	}
+
+	/**
+	 * Shuts the embedded engine down, releasing the store lock held on the database directory.
+	 */
+	void shutdown() {
+		_graphDatabaseService.shutdown();
+	}
+
+	private Runnable _bindTransaction(KernelTransaction kernelTransaction) {
+		KernelTransaction callerKernelTransaction = null;
+
+		if (_threadToStatementContextBridge.hasTransaction()) {
+			callerKernelTransaction = _threadToStatementContextBridge.getKernelTransactionBoundToThisThread(true);
+
+			_threadToStatementContextBridge.unbindTransactionFromCurrentThread();
+		}
+
+		_threadToStatementContextBridge.bindTransactionToCurrentThread(kernelTransaction);
+
+		KernelTransaction previousKernelTransaction = callerKernelTransaction;
+
+		return () -> {
+			_threadToStatementContextBridge.unbindTransactionFromCurrentThread();
+
+			if (previousKernelTransaction != null) {
+				_threadToStatementContextBridge.bindTransactionToCurrentThread(previousKernelTransaction);
+			}
+		};
+	}
+
+	private final GraphDatabaseService _graphDatabaseService;
+	private final ThreadToStatementContextBridge _threadToStatementContextBridge;
+
+}
@@ -15,28 +15,67 @@
 package com.liferay.neo4j;
 
 import aQute.bnd.annotation.metatype.Configurable;
+import com.liferay.neo4j.cache.EntityCache;
+import com.liferay.neo4j.capture.WorkloadRecordType;
+import com.liferay.neo4j.capture.WorkloadRecorder;
 import com.liferay.neo4j.configuration.GraphDatabaseConfiguration;
+import com.liferay.neo4j.limiter.ConcurrencyLimiter;
+import com.liferay.neo4j.profile.QueryProfiler;
+import com.liferay.neo4j.result.EmbeddedStatementResult;
 import com.liferay.neo4j.result.GraphDatabaseResult;
+import com.liferay.neo4j.result.GraphDatabaseResultListener;
+import com.liferay.neo4j.result.HeapBudget;
+import com.liferay.neo4j.result.ResultSizeExceededException;
+import com.liferay.neo4j.writebehind.WriteBehindOverflowPolicy;
+import com.liferay.neo4j.writebehind.WriteBehindQueue;
 import org.neo4j.driver.v1.AuthToken;
 import org.neo4j.driver.v1.AuthTokens;
 import org.neo4j.driver.v1.Driver;
+import org.neo4j.driver.v1.Record;
 import org.neo4j.driver.v1.Session;
 import org.neo4j.driver.v1.StatementResult;
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.exceptions.ClientException;
+import org.neo4j.driver.v1.exceptions.ServiceUnavailableException;
+import org.neo4j.driver.v1.exceptions.SessionExpiredException;
+import org.neo4j.driver.v1.exceptions.TransientException;
+import org.neo4j.driver.v1.types.Entity;
+import org.neo4j.driver.v1.types.Node;
+import org.neo4j.driver.v1.types.Relationship;
 import org.neo4j.graphdb.GraphDatabaseService;
-import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleReference;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
 import org.osgi.service.metatype.annotations.Designate;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * GraphDatabase component service which will be registered to the OSGi component service. Provides a basic interface to
@@ -60,12 +99,39 @@ public class GraphDatabase {
 	public void activate(Map<String, Object> properties) {
 		_sessionMap = new HashMap<>();
 
+		_statementReaper = new StatementReaper();
+
+		_killStatementExecutorService = Executors.newSingleThreadExecutor(
+			(runnable) -> {
+				Thread thread = new Thread(runnable, "Neo4j Statement Killer");
+
+				thread.setDaemon(true);
+
+				return thread;
+			});
+
 		_graphDatabaseConfiguration = Configurable.createConfigurable(GraphDatabaseConfiguration.class, properties);
 
-		String uri = "bolt://" + _graphDatabaseConfiguration.hostname() + ":" + _graphDatabaseConfiguration.port();
+		if (!_isEmbeddedExecution()) {
+			String uri = "bolt://" + _graphDatabaseConfiguration.hostname() + ":" + _graphDatabaseConfiguration.port();
+
+			_neo4jDriver = org.neo4j.driver.v1.GraphDatabase.driver(
+				uri, AuthTokens.basic(_graphDatabaseConfiguration.userName(), _graphDatabaseConfiguration.password()));
+		}
+
+		_concurrencyLimiter = _createConcurrencyLimiter();
+
+		_writeBehindQueue = _createWriteBehindQueue();
+
+		_workloadRecorder = _createWorkloadRecorder();
 
-		_neo4jDriver = org.neo4j.driver.v1.GraphDatabase.driver(
-			uri, AuthTokens.basic(_graphDatabaseConfiguration.userName(), _graphDatabaseConfiguration.password()));
+		_queryProfiler = _createQueryProfiler();
+
+		_nodeCache = _createEntityCache();
+
+		_relationshipCache = _createEntityCache();
+
+		_resultHeapBudget = _createResultHeapBudget();
 	}
 
 	/**
@@ -75,18 +141,75 @@ public class GraphDatabase {
 	 */
 	@Modified
 	public void modified(Map<String, Object> properties) {
+		if (_writeBehindQueue != null) {
+			_writeBehindQueue.close();
+		}
+
+		if (_workloadRecorder != null) {
+			_workloadRecorder.close();
+		}
+
 		if (_neo4jDriver != null) {
 			_neo4jDriver.close();
+
+			_neo4jDriver = null;
 		}
 
+		_shutdownEmbeddedGraphDatabase();
+
 		_sessionMap = new HashMap<>();
 
+		// The new configuration may point to another server, which may support killing statements
+
+		_killStatementUnsupported = false;
+
 		_graphDatabaseConfiguration = Configurable.createConfigurable(GraphDatabaseConfiguration.class, properties);
 
-		String uri = "bolt://" + _graphDatabaseConfiguration.hostname() + ":" + _graphDatabaseConfiguration.port();
+		if (!_isEmbeddedExecution()) {
+			String uri = "bolt://" + _graphDatabaseConfiguration.hostname() + ":" + _graphDatabaseConfiguration.port();
+
+			_neo4jDriver = org.neo4j.driver.v1.GraphDatabase.driver(
+				uri, AuthTokens.basic(_graphDatabaseConfiguration.userName(), _graphDatabaseConfiguration.password()));
+		}
+
+		_concurrencyLimiter = _createConcurrencyLimiter();
+
+		_writeBehindQueue = _createWriteBehindQueue();
+
+		_workloadRecorder = _createWorkloadRecorder();
+
+		_queryProfiler = _createQueryProfiler();
 
-		_neo4jDriver = org.neo4j.driver.v1.GraphDatabase.driver(
-			uri, AuthTokens.basic(_graphDatabaseConfiguration.userName(), _graphDatabaseConfiguration.password()));
+		_nodeCache = _createEntityCache();
+
+		_relationshipCache = _createEntityCache();
+
+		_resultHeapBudget = _createResultHeapBudget();
+	}
+
+	/**
+	 * OSGi deactivate method. Pending write-behind statements are flushed before the driver is closed and the embedded
+	 * database is shut down.
+	 */
+	@Deactivate
+	public void deactivate() {
+		if (_writeBehindQueue != null) {
+			_writeBehindQueue.close();
+		}
+
+		if (_workloadRecorder != null) {
+			_workloadRecorder.close();
+		}
+
+		_statementReaper.shutdown();
+
+		_killStatementExecutorService.shutdownNow();
+
+		if (_neo4jDriver != null) {
+			_neo4jDriver.close();
+		}
+
+		_shutdownEmbeddedGraphDatabase();
 	}
 
 	/**
@@ -97,30 +220,96 @@ public class GraphDatabase {
 	 */
 	public static final int SESSION_AUTOCLOSE_TIMEOUT = 5000;
 
+	/**
+	 * Returns the embedded Neo4j database, which is started on the first call. The embedded engine is shipped as a
+	 * separate fragment of this bundle.
+	 *
+	 * @return the embedded database service, null if the embedded engine fragment is not installed
+	 */
 	public GraphDatabaseService getEmbeddedDatabaseService() {
-		if (_embeddedDatabaseService == null) {
-			GraphDatabaseFactory graphDatabaseFactory =
-				new GraphDatabaseFactory();
+		EmbeddedGraphDatabase embeddedGraphDatabase = _getEmbeddedGraphDatabase();
 
-			_embeddedDatabaseService = graphDatabaseFactory.newEmbeddedDatabase(
-				new File(_graphDatabaseConfiguration.embeddedDatabasePath()));
+		if (embeddedGraphDatabase == null) {
+			return null;
 		}
 
-		return _embeddedDatabaseService;
+		return embeddedGraphDatabase.getGraphDatabaseService();
+	}
+
+	/**
+	 * Returns whether the embedded Neo4j engine is available. When it is not, embedded execution is disabled regardless
+	 * of the OSGi configuration and every statement is run over Bolt.
+	 *
+	 * @return <code>true</code> if the embedded engine fragment is installed
+	 */
+	public boolean isEmbeddedDatabaseAvailable() {
+		return _EMBEDDED_DATABASE_AVAILABLE;
 	}
 
 	/**
 	 * Runs a Cypher statement on the graph database instance configured via OSGi. This method automatically opens a
 	 * new session and closes it immediately after the statement execution.
 	 *
+	 * When embedded execution is enabled in the OSGi configuration the statement is executed in-process on the embedded
+	 * database and the result is fully read before this method returns.
+	 *
+	 * The statement timeout defined in the OSGi configuration does not apply to immediate statements, which are only
+	 * bounded by the transaction timeout of the database.
+	 *
+	 * The records are read before the session is closed, within the result heap budget and the maximum number of
+	 * result records defined in the OSGi configuration, so the same limits apply as to <code>list()</code> on a
+	 * streamed result.
+	 *
 	 * @param statement the Cypher statement which will be executed on the database
 	 * @return a result object wrapping the Neo4j {@link StatementResult}
+	 * @throws ResultSizeExceededException if the result set holds more records than the maximum
 	 */
 	public GraphDatabaseResult runImmediateStatement(String statement) {
-		try (Session session = _neo4jDriver.session()) {
-			StatementResult result = session.run(statement);
+		return runImmediateStatement(statement, Collections.emptyMap());
+	}
+
+	/**
+	 * Runs a parameterized Cypher statement on the graph database instance configured via OSGi. This method
+	 * automatically opens a new session and closes it immediately after the statement execution.
+	 *
+	 * @param statement the Cypher statement which will be executed on the database
+	 * @param parameters the parameters of the statement
+	 * @return a result object wrapping the Neo4j {@link StatementResult}
+	 * @see #runImmediateStatement(String)
+	 */
+	public GraphDatabaseResult runImmediateStatement(String statement, Map<String, Object> parameters) {
+		ConcurrencyLimiter.Permit permit = _acquirePermit();
+
+		WorkloadRecorder.Capture capture = _beginCapture(WorkloadRecordType.IMMEDIATE, statement, parameters);
+
+		QueryProfiler queryProfiler = _queryProfiler;
+
+		boolean profiled = (queryProfiler != null) && queryProfiler.sample(statement);
+
+		try {
+			GraphDatabaseResult graphDatabaseResult;
+
+			if (profiled) {
+				graphDatabaseResult = _runImmediateStatement(QueryProfiler.profile(statement), parameters);
 
-			return new GraphDatabaseResult(result);
+				_collectProfile(queryProfiler, statement, graphDatabaseResult.getStatementResult());
+			}
+			else {
+				graphDatabaseResult = _runImmediateStatement(statement, parameters);
+			}
+
+			permit.release();
+
+			capture.complete();
+
+			return graphDatabaseResult;
+		}
+		catch (RuntimeException re) {
+			_releasePermit(permit, re);
+
+			capture.fail();
+
+			throw re;
 		}
 	}
 
@@ -128,21 +317,376 @@ public class GraphDatabase {
 	 * Runs a Cypher statement on the graph database instance configured via OSGi. The session remains open until the
 	 * result set is exhausted and is closed after all result has been retrieved.
 	 *
+	 * When embedded execution is enabled in the OSGi configuration the statement is executed in-process on the embedded
+	 * database and its transaction is finished once the result set is exhausted.
+	 *
+	 * The statement is aborted and its session is returned to the pool when the result set is not exhausted within the
+	 * statement timeout defined in the OSGi configuration, or when the result becomes unreachable before that.
+	 *
 	 * @param statement the Cypher statement to run against the database
 	 * @return a result object wrapping the Neo4j {@link StatementResult}
 	 */
 	public GraphDatabaseResult runStatement(String statement) {
-		Session session = _neo4jDriver.session();
+		return runStatement(statement, _graphDatabaseConfiguration.statementTimeout());
+	}
+
+	/**
+	 * Runs a Cypher statement on the graph database instance configured via OSGi. The session remains open until the
+	 * result set is exhausted or the given deadline expires, whichever happens first. When the deadline expires the
+	 * statement is reset and its session is returned to the pool.
+	 *
+	 * @param statement the Cypher statement to run against the database
+	 * @param timeout the time in milliseconds the result set needs to be exhausted in, 0 for no deadline
+	 * @return a result object wrapping the Neo4j {@link StatementResult}
+	 */
+	public GraphDatabaseResult runStatement(String statement, long timeout) {
+		ConcurrencyLimiter.Permit permit = _acquirePermit();
+
+		WorkloadRecorder.Capture capture = _beginCapture(WorkloadRecordType.STREAMED, statement, null);
+
+		Consumer<Boolean> abortHandler = (expired) -> {
+			if (expired) {
+				permit.drop();
+			}
+			else {
+				permit.release();
+			}
+
+			capture.fail();
+		};
+
+		QueryProfiler queryProfiler = _queryProfiler;
+
+		boolean profiled = (queryProfiler != null) && queryProfiler.sample(statement);
+
+		GraphDatabaseResult graphDatabaseResult;
+
+		try {
+			if (profiled) {
+				graphDatabaseResult = _runStatement(QueryProfiler.profile(statement), timeout, abortHandler);
+			}
+			else {
+				graphDatabaseResult = _runStatement(statement, timeout, abortHandler);
+			}
+		}
+		catch (RuntimeException re) {
+			_releasePermit(permit, re);
+
+			capture.fail();
+
+			throw re;
+		}
+
+		GraphDatabaseResult failedGraphDatabaseResult = graphDatabaseResult;
+
+		// The permit is held until the result is exhausted, statements this thread runs meanwhile do not wait for it
+
+		permit.hold();
+
+		graphDatabaseResult.onFirstResult(permit::sample);
+		graphDatabaseResult.onExhaustResult(permit::release);
+		graphDatabaseResult.onExhaustResult(capture::complete);
+		graphDatabaseResult.onFailResult(
+			() -> {
+				_releasePermit(permit, failedGraphDatabaseResult.getFailure());
 
-		StatementResult result = session.run(statement);
+				capture.fail();
+			});
 
-		GraphDatabaseResult graphDatabaseResult = new GraphDatabaseResult(result);
+		if (profiled) {
+			StatementResult statementResult = graphDatabaseResult.getStatementResult();
 
-		graphDatabaseResult.onExhaustResult(session::close);
+			graphDatabaseResult.onExhaustResult(() -> _collectProfile(queryProfiler, statement, statementResult));
+		}
 
 		return graphDatabaseResult;
 	}
 
+	/**
+	 * Queues an idempotent write statement to be executed asynchronously by the write-behind queue, together with other
+	 * queued writes in a single write transaction. A pending write with the same key is replaced by the new one. When
+	 * the write-behind queue is disabled in the OSGi configuration the statement is executed immediately.
+	 *
+	 * @param key the coalescing key of the write, null if the write must not be coalesced with other writes
+	 * @param statement the idempotent Cypher write statement
+	 * @param parameters the parameters of the statement
+	 * @return <code>true</code> if the write was accepted, <code>false</code> if it was discarded because the queue is
+	 *         full
+	 */
+	public boolean runWriteBehindStatement(String key, String statement, Map<String, Object> parameters) {
+		WriteBehindQueue writeBehindQueue = _writeBehindQueue;
+
+		if (writeBehindQueue == null) {
+			_runWriteBatch(Collections.singletonList(new WriteBehindQueue.Write(key, statement, parameters)));
+
+			return true;
+		}
+
+		return writeBehindQueue.add(key, statement, parameters);
+	}
+
+	/**
+	 * Adds a listener receiving the lifecycle events of every result created by this service from now on. Listeners
+	 * registered as OSGi services are added automatically.
+	 *
+	 * @param listener the listener to add
+	 */
+	@Reference(
+		cardinality = ReferenceCardinality.MULTIPLE, policy = ReferencePolicy.DYNAMIC,
+		policyOption = ReferencePolicyOption.GREEDY)
+	public void addResultListener(GraphDatabaseResultListener listener) {
+		_resultListeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener added with {@link #addResultListener(GraphDatabaseResultListener)}. Results created before
+	 * keep delivering their events to the listener.
+	 *
+	 * @param listener the listener to remove
+	 */
+	public void removeResultListener(GraphDatabaseResultListener listener) {
+		_resultListeners.remove(listener);
+	}
+
+	/**
+	 * Returns the write-behind queue of this service, which exposes the number of pending, coalesced, discarded and
+	 * executed writes.
+	 *
+	 * @return the write-behind queue, null if the write-behind queue is disabled in the OSGi configuration
+	 */
+	public WriteBehindQueue getWriteBehindQueue() {
+		return _writeBehindQueue;
+	}
+
+	/**
+	 * Returns the recorder capturing the statements executed by this service into a workload capture log, which can be
+	 * replayed with {@link com.liferay.neo4j.capture.WorkloadReplayer}. A new capture log is started in the configured
+	 * capture directory every time the service is activated or its configuration is modified.
+	 *
+	 * @return the workload recorder, null if workload capture is disabled in the OSGi configuration
+	 */
+	public WorkloadRecorder getWorkloadRecorder() {
+		return _workloadRecorder;
+	}
+
+	/**
+	 * Returns the profiler which runs a sample of the statements with <code>PROFILE</code> and aggregates their
+	 * database hits, rows and time per normalized statement. Use {@link QueryProfiler#getTopStatements(int)} to find the
+	 * most expensive statements.
+	 *
+	 * @return the query profiler, null if profile sampling is disabled in the OSGi configuration
+	 */
+	public QueryProfiler getQueryProfiler() {
+		return _queryProfiler;
+	}
+
+	/**
+	 * Returns the node with the given internal id. When the entity cache is enabled in the OSGi configuration the node
+	 * is served from the cache and only fetched from the database on a cache miss.
+	 *
+	 * @param id the internal id of the node
+	 * @return the node, null if there is no node with the given id
+	 */
+	public Node getNode(long id) {
+		return getNodes(new long[] {id})[0];
+	}
+
+	/**
+	 * Returns the nodes with the given internal ids. When the entity cache is enabled in the OSGi configuration the
+	 * nodes missing from the cache are fetched with a single statement and added to the cache, otherwise every node is
+	 * fetched with a single statement.
+	 *
+	 * @param ids the internal ids of the nodes
+	 * @return the nodes in the order of the ids, null at the position of the ids without a node
+	 */
+	public Node[] getNodes(long[] ids) {
+		return _getEntities(ids, new Node[ids.length], _nodeCache, _NODES_STATEMENT, Value::asNode);
+	}
+
+	/**
+	 * Returns the cache of the nodes fetched with {@link #getNode(long)} and {@link #getNodes(long[])}. The cache exposes
+	 * its hit rate and estimated memory usage. Nodes updated or deleted by the caller should be removed from the cache
+	 * with {@link EntityCache#remove(long)}. A new, empty cache is created every time the configuration is modified.
+	 *
+	 * @return the node cache, null if the entity cache is disabled in the OSGi configuration
+	 */
+	public EntityCache<Node> getNodeCache() {
+		return _nodeCache;
+	}
+
+	/**
+	 * Returns the relationship with the given internal id, served from the entity cache when it is enabled.
+	 *
+	 * @param id the internal id of the relationship
+	 * @return the relationship, null if there is no relationship with the given id
+	 * @see #getNode(long)
+	 */
+	public Relationship getRelationship(long id) {
+		return getRelationships(new long[] {id})[0];
+	}
+
+	/**
+	 * Returns the relationships with the given internal ids, fetching the relationships missing from the entity cache
+	 * with a single statement.
+	 *
+	 * @param ids the internal ids of the relationships
+	 * @return the relationships in the order of the ids, null at the position of the ids without a relationship
+	 * @see #getNodes(long[])
+	 */
+	public Relationship[] getRelationships(long[] ids) {
+		return _getEntities(
+			ids, new Relationship[ids.length], _relationshipCache, _RELATIONSHIPS_STATEMENT, Value::asRelationship);
+	}
+
+	/**
+	 * Returns the cache of the relationships fetched with {@link #getRelationship(long)} and
+	 * {@link #getRelationships(long[])}.
+	 *
+	 * @return the relationship cache, null if the entity cache is disabled in the OSGi configuration
+	 * @see #getNodeCache()
+	 */
+	public EntityCache<Relationship> getRelationshipCache() {
+		return _relationshipCache;
+	}
+
+	/**
+	 * Returns the adaptive concurrency limiter guarding the statements run by this service. The limiter exposes its
+	 * current limit, in-flight statements, queue depth and per bundle bulkhead usage.
+	 *
+	 * @return the concurrency limiter, null if the concurrency limiter is disabled in the OSGi configuration
+	 */
+	public ConcurrencyLimiter getConcurrencyLimiter() {
+		return _concurrencyLimiter;
+	}
+
+	/**
+	 * Returns the heap budget shared by every result of this service. The records <code>list()</code> keeps on the heap
+	 * are reserved from it until {@link GraphDatabaseResult#releaseList()} is called or the returned list becomes
+	 * unreachable, records over the budget are spilled to disk.
+	 *
+	 * @return the heap budget of the results, null if results are kept on the heap without a budget
+	 */
+	public HeapBudget getResultHeapBudget() {
+		return _resultHeapBudget;
+	}
+
+	/**
+	 * Returns the number of streamed results which were aborted because their deadline expired before they were
+	 * exhausted.
+	 *
+	 * @return the number of expired statement deadlines
+	 */
+	public long getDeadlineExpiredCount() {
+		return _statementReaper.getDeadlineExpiredCount();
+	}
+
+	/**
+	 * Returns the number of streamed results which became unreachable without being exhausted and had their session
+	 * reclaimed.
+	 *
+	 * @return the number of reclaimed leaked results
+	 */
+	public long getLeakedResultCount() {
+		return _statementReaper.getLeakedResultCount();
+	}
+
+	/**
+	 * Returns the number of Neo4j sessions opened by this service to run statements, including the sessions of scopes.
+	 * Comparing it with the number of served requests shows how many sessions are opened per request.
+	 *
+	 * @return the number of sessions opened to run statements
+	 */
+	public long getSessionOpenCount() {
+		return _sessionOpenCount.get();
+	}
+
+	/**
+	 * Opens a scope bound to the current thread. Until the scope is closed every <code>runStatement</code> and
+	 * <code>runImmediateStatement</code> call made on this thread reuses the single session of the scope, so bookmarks
+	 * are chained between the statements and the session is released only once. The underlying Neo4j session is opened
+	 * when the scope runs its first statement.
+	 *
+	 * Opening a scope while another one is bound to the current thread joins the outer scope, closing the inner scope
+	 * has no effect on the session. The inner scope inherits the bookmark of the outer scope and its last bookmark is
+	 * the one of the shared session. The scope has to be closed on the thread which opened it, so the thread does not
+	 * stay bound to a closed session, and it cannot be used once it is closed.
+	 *
+	 * When embedded execution is enabled statements are executed in-process on the embedded database and do not use the
+	 * session of the scope. The embedded database is a single instance which always observes its own writes, so the
+	 * scope does not need to chain bookmarks there, its session is only opened if it is used directly.
+	 *
+	 * <pre>
+	 * try (GraphDatabaseSession scope = graphDatabase.openScope()) {
+	 *     graphDatabase.runImmediateStatement(...);
+	 *     graphDatabase.runImmediateStatement(...);
+	 * }
+	 * </pre>
+	 *
+	 * @return the session of the scope, which needs to be closed when the work is done
+	 */
+	public GraphDatabaseSession openScope() {
+		return openScope(null);
+	}
+
+	/**
+	 * Opens a scope bound to the current thread, see {@link #openScope()}. The session of the scope starts with the
+	 * given bookmark, so it observes the writes of an earlier scope.
+	 *
+	 * A scope opened while another one is bound to the current thread joins the outer scope, so it can only be given
+	 * null or a bookmark the outer scope has already observed, its initial or its last bookmark.
+	 *
+	 * @param bookmark the bookmark to start the session with, usually the last bookmark of an earlier scope, or null
+	 * @return the session of the scope, which needs to be closed when the work is done
+	 * @throws IllegalStateException if a scope with a different bookmark is bound to the current thread
+	 */
+	public GraphDatabaseSession openScope(String bookmark) {
+		GraphDatabaseSession outerScope = _scopes.get();
+
+		String uuid = UUID.randomUUID().toString();
+
+		if (outerScope != null) {
+			if ((bookmark != null) && !bookmark.equals(outerScope.getBookmark()) &&
+				!bookmark.equals(outerScope.lastBookmark())) {
+
+				throw new IllegalStateException(
+					"Unable to open a scope with bookmark " + bookmark + " within scope " + outerScope.getUuid() +
+						" which has not observed it");
+			}
+
+			return new GraphDatabaseSession(uuid, outerScope.lastBookmark(), () -> outerScope, (session) -> {});
+		}
+
+		Thread ownerThread = Thread.currentThread();
+
+		GraphDatabaseSession scope = new GraphDatabaseSession(
+			uuid, bookmark,
+			() -> {
+				_sessionOpenCount.incrementAndGet();
+
+				if (bookmark == null) {
+					return getDriver().session();
+				}
+
+				return getDriver().session(bookmark);
+			},
+			(session) -> {
+				if (Thread.currentThread() != ownerThread) {
+					throw new IllegalStateException(
+						"Scope " + uuid + " can only be closed by the thread which opened it");
+				}
+
+				_scopes.remove();
+
+				if (session != null) {
+					session.close();
+				}
+			});
+
+		_scopes.set(scope);
+
+		return scope;
+	}
+
 	/**
 	 * Returns the Neo4j driver configured via the OSGi service configuration.
 	 *
@@ -166,7 +710,7 @@ public class GraphDatabase {
 	 * @return a <code>Session</code> object from the Neo4j driver
 	 */
 	public Session getSession() {
-		return _neo4jDriver.session();
+		return getDriver().session();
 	}
 
 	/**
@@ -177,7 +721,7 @@ public class GraphDatabase {
 	 * @return a <code>Session</code> object from the Neo4j driver
 	 */
 	public Session getAutoclosingSession(long autoCloseTimeout) {
-		Session session = _neo4jDriver.session();
+		Session session = getDriver().session();
 
 		_autoCloseSessionTask(session, autoCloseTimeout);
 
@@ -371,11 +915,11 @@ public class GraphDatabase {
 		String url, String userName, String password, String statement, Map<String, Object> parameters,
 		boolean autocloseSession, int autocloseTimeout) {
 
-		final Session session = _neo4jDriver.session();
+		final Session session = getDriver().session();
 
 		StatementResult statementResult = session.run(statement, parameters);
 
-		GraphDatabaseResult result = new GraphDatabaseResult(statementResult);
+		GraphDatabaseResult result = _newGraphDatabaseResult(statementResult);
 
 		if (autocloseSession) {
 			ExecutorService executorService = Executors.newSingleThreadExecutor();
@@ -401,19 +945,758 @@ public class GraphDatabase {
 		return _neo4jDriver;
 	}
 
-	private Callable<Void> _autoCloseSessionTask(Session session, long autocloseTimeout) {
-		return () -> {
-			TimeUnit.MILLISECONDS.sleep(autocloseTimeout);
+	private ConcurrencyLimiter.Permit _acquirePermit() {
+		ConcurrencyLimiter concurrencyLimiter = _concurrencyLimiter;
 
-			session.close();
+		if (concurrencyLimiter == null) {
+			return ConcurrencyLimiter.Permit.UNLIMITED;
+		}
+
+		return concurrencyLimiter.acquire(_getBulkheadName());
+	}
+
+	private WorkloadRecorder.Capture _beginBatchCapture(
+		WorkloadRecorder workloadRecorder, List<WriteBehindQueue.Write> writes) {
+
+		List<String> statements = new ArrayList<>(writes.size());
+		List<Map<String, Object>> parameters = new ArrayList<>(writes.size());
+
+		for (WriteBehindQueue.Write write : writes) {
+			statements.add(write.getStatement());
+			parameters.add(write.getParameters());
+		}
+
+		return workloadRecorder.beginBatch(statements, parameters);
+	}
+
+	private WorkloadRecorder.Capture _beginCapture(
+		WorkloadRecordType type, String statement, Map<String, Object> parameters) {
+
+		WorkloadRecorder workloadRecorder = _workloadRecorder;
+
+		if (workloadRecorder == null) {
+			return WorkloadRecorder.Capture.NONE;
+		}
+
+		return workloadRecorder.begin(type, statement, parameters);
+	}
 
+	/**
+	 * Collects the profile of a profiled statement. Profiling is a diagnostic, a failure reading the summary or the
+	 * plan is logged and never fails the statement, which has already succeeded.
+	 */
+	private void _collectProfile(QueryProfiler queryProfiler, String statement, StatementResult statementResult) {
+		try {
+			queryProfiler.collect(statement, statementResult.summary());
+		}
+		catch (RuntimeException re) {
+			_logger.log(Level.WARNING, "Unable to collect the profile of " + statement, re);
+		}
+	}
+
+	private ConcurrencyLimiter _createConcurrencyLimiter() {
+		if (!_graphDatabaseConfiguration.concurrencyLimitEnabled()) {
 			return null;
-		};
+		}
+
+		return new ConcurrencyLimiter(
+			_graphDatabaseConfiguration.concurrencyLimitInitial(), _graphDatabaseConfiguration.concurrencyLimitMin(),
+			_graphDatabaseConfiguration.concurrencyLimitMax(),
+			_graphDatabaseConfiguration.concurrencyLimitLatencyThreshold(),
+			_graphDatabaseConfiguration.concurrencyLimitBackoffRatio(),
+			_graphDatabaseConfiguration.concurrencyLimitFailFast(),
+			_graphDatabaseConfiguration.concurrencyLimitQueueTimeout(),
+			_graphDatabaseConfiguration.concurrencyLimitBulkheadSize());
+	}
+
+	private <T extends Entity> EntityCache<T> _createEntityCache() {
+		if (!_graphDatabaseConfiguration.entityCacheEnabled()) {
+			return null;
+		}
+
+		return new EntityCache<>(_graphDatabaseConfiguration.entityCacheSize());
 	}
 
-	private GraphDatabaseService _embeddedDatabaseService;
+	private WriteBehindQueue _createWriteBehindQueue() {
+		if (!_graphDatabaseConfiguration.writeBehindEnabled()) {
+			return null;
+		}
+
+		return new WriteBehindQueue(
+			_graphDatabaseConfiguration.writeBehindCapacity(), _graphDatabaseConfiguration.writeBehindBatchSize(),
+			_graphDatabaseConfiguration.writeBehindFlushInterval(),
+			WriteBehindOverflowPolicy.valueOf(_graphDatabaseConfiguration.writeBehindOverflowPolicy()),
+			this::_runWriteBatch);
+	}
+
+	private QueryProfiler _createQueryProfiler() {
+		if (_graphDatabaseConfiguration.profileSampleRate() <= 0) {
+			return null;
+		}
+
+		return new QueryProfiler(
+			_graphDatabaseConfiguration.profileSampleRate(), _graphDatabaseConfiguration.profileMaxStatements());
+	}
+
+	private HeapBudget _createResultHeapBudget() {
+		if (_graphDatabaseConfiguration.resultHeapBudget() <= 0) {
+			return null;
+		}
+
+		return new HeapBudget(_graphDatabaseConfiguration.resultHeapBudget());
+	}
+
+	private WorkloadRecorder _createWorkloadRecorder() {
+		if (!_graphDatabaseConfiguration.workloadCaptureEnabled()) {
+			return null;
+		}
+
+		try {
+			return new WorkloadRecorder(
+				Paths.get(
+					_graphDatabaseConfiguration.workloadCaptureDirectory(),
+					"workload-" + System.currentTimeMillis() + ".capture"));
+		}
+		catch (IOException | RuntimeException e) {
+
+			// Workload capture is a diagnostic, a capture log which cannot be created disables it but never keeps the
+			// service from running statements
+
+			_logger.log(Level.WARNING, "Unable to create a workload capture log, workload capture is disabled", e);
+
+			return null;
+		}
+	}
+
+	private <T extends Entity> T[] _getEntities(
+		long[] ids, T[] entities, EntityCache<T> entityCache, String statement, Function<Value, T> function) {
+
+		long[] missingIds;
+
+		if (entityCache == null) {
+			missingIds = ids.clone();
+		}
+		else {
+			int missCount = entityCache.getAll(ids, entities);
+
+			if (missCount == 0) {
+				return entities;
+			}
+
+			missingIds = new long[missCount];
+
+			for (int i = 0, j = 0; i < ids.length; i++) {
+				if (entities[i] == null) {
+					missingIds[j++] = ids[i];
+				}
+			}
+		}
+
+		// Sort the missing ids and drop duplicates and invalid ids, so each entity is fetched once and the fetched
+		// entities can be matched with their positions by binary search
+
+		Arrays.sort(missingIds);
+
+		int length = 0;
+
+		for (long id : missingIds) {
+			if ((id >= 0) && ((length == 0) || (missingIds[length - 1] != id))) {
+				missingIds[length++] = id;
+			}
+		}
+
+		if (length == 0) {
+			return entities;
+		}
+
+		List<Long> idsParameter = new ArrayList<>(length);
+
+		for (int i = 0; i < length; i++) {
+			idsParameter.add(missingIds[i]);
+		}
+
+		GraphDatabaseResult graphDatabaseResult = runImmediateStatement(
+			statement, Collections.singletonMap("ids", idsParameter));
+
+		T[] fetchedEntities = Arrays.copyOf(entities, length);
+
+		Arrays.fill(fetchedEntities, null);
+
+		try {
+			for (Record record : graphDatabaseResult.list()) {
+				T entity = function.apply(record.get(0));
+
+				fetchedEntities[Arrays.binarySearch(missingIds, 0, length, entity.id())] = entity;
+
+				if (entityCache != null) {
+					entityCache.put(entity);
+				}
+			}
+		}
+		finally {
+			graphDatabaseResult.releaseList();
+		}
+
+		for (int i = 0; i < ids.length; i++) {
+			if (entities[i] == null) {
+				int index = Arrays.binarySearch(missingIds, 0, length, ids[i]);
+
+				if (index >= 0) {
+					entities[i] = fetchedEntities[index];
+				}
+			}
+		}
+
+		return entities;
+	}
+
+	/**
+	 * Returns the symbolic name of the calling bundle from the thread context class loader. On Equinox the context class
+	 * loader is a bundle class loader only while a bundle sets it, for example during portlet dispatch, otherwise it is
+	 * the context finder or the web application class loader and the caller falls back to the default bulkhead.
+	 */
+	private String _getBulkheadName() {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+		if (classLoader instanceof BundleReference) {
+			Bundle bundle = ((BundleReference)classLoader).getBundle();
+
+			if (bundle != null) {
+				return bundle.getSymbolicName();
+			}
+		}
+
+		return _DEFAULT_BULKHEAD_NAME;
+	}
+
+	/**
+	 * Runs an immediate statement within the events of its result: the result is created, and delivers
+	 * {@link com.liferay.neo4j.result.GraphDatabaseResultEventType#STARTED}, before the statement is executed, and it
+	 * is finished once the records are buffered, so nothing is left for the caller to exhaust.
+	 */
+	private GraphDatabaseResult _runImmediateStatement(String statement, Map<String, Object> parameters) {
+		GraphDatabaseResult graphDatabaseResult = _newGraphDatabaseResult();
+
+		graphDatabaseResult.run(() -> _runBufferedStatement(statement, parameters, graphDatabaseResult));
+
+		graphDatabaseResult.finish();
+
+		return graphDatabaseResult;
+	}
+
+	/**
+	 * Runs a statement and buffers its records with {@link GraphDatabaseResult#buffer(StatementResult)} before its
+	 * session or transaction is closed, so the heap budget and the maximum number of records of the results bound the
+	 * buffered records as well. A result set exceeding the maximum is discarded the same way as a failed streamed
+	 * result.
+	 */
+	private StatementResult _runBufferedStatement(
+		String statement, Map<String, Object> parameters, GraphDatabaseResult graphDatabaseResult) {
+
+		if (_isEmbeddedExecution()) {
+			EmbeddedStatementResult result = _getEmbeddedGraphDatabase().run(statement, parameters);
+
+			try {
+				return graphDatabaseResult.buffer(result);
+			}
+			catch (ResultSizeExceededException rsee) {
+				result.rollback();
+
+				throw rsee;
+			}
+		}
+
+		GraphDatabaseSession scope = _scopes.get();
+
+		if (scope != null) {
+			StatementResult result = scope.run(statement, parameters);
+
+			// The scope stays open, so the records are buffered here the same way closing a session buffers them,
+			// failures of the statement then surface before it is reported as completed
+
+			try {
+				return graphDatabaseResult.buffer(result);
+			}
+			catch (ResultSizeExceededException rsee) {
+				_discardResult(result, () -> scope.resetIfLastStatementResult(result));
+
+				throw rsee;
+			}
+		}
+
+		try (Session session = _openSession()) {
+			StatementResult result = session.run(statement, parameters);
+
+			try {
+				return graphDatabaseResult.buffer(result);
+			}
+			catch (ResultSizeExceededException rsee) {
+				_discardResult(result, () -> _resetSession(session));
+
+				throw rsee;
+			}
+		}
+	}
+
+	private GraphDatabaseResult _runStatement(String statement, long timeout, Consumer<Boolean> abortHandler) {
+		if (_isEmbeddedExecution()) {
+			EmbeddedStatementResult result = _runEmbeddedStatement(statement);
+
+			GraphDatabaseResult graphDatabaseResult = _newGraphDatabaseResult(result);
+
+			Runnable resultAbortHandler = graphDatabaseResult.getAbortHandler();
+
+			graphDatabaseResult.onCloseResult(
+				_statementReaper.track(
+					graphDatabaseResult, timeout,
+					(expired) -> {
+						abortHandler.accept(expired);
+
+						resultAbortHandler.run();
+
+						result.terminate();
+					},
+					result::rollback));
+			graphDatabaseResult.onExhaustResult(result::consume);
+			graphDatabaseResult.onFailResult(result::rollback);
+
+			return graphDatabaseResult;
+		}
+
+		// Only statements with a deadline are tagged, the tag is how an expired statement is found on the server
+
+		String statementTag = null;
+
+		Map<String, Object> parameters = Collections.emptyMap();
+
+		if (timeout > 0) {
+			statementTag = UUID.randomUUID().toString();
+
+			parameters = Collections.singletonMap(_STATEMENT_TAG_PARAMETER, statementTag);
+		}
+
+		GraphDatabaseSession scope = _scopes.get();
+
+		if (scope != null) {
+			StatementResult result = scope.run(statement, parameters);
+
+			GraphDatabaseResult graphDatabaseResult = _newGraphDatabaseResult(result);
+
+			Runnable resultAbortHandler = graphDatabaseResult.getAbortHandler();
+
+			String scopeStatementTag = statementTag;
+
+			graphDatabaseResult.onCloseResult(
+				_statementReaper.track(
+					graphDatabaseResult, timeout,
+					(expired) -> {
+						abortHandler.accept(expired);
+
+						resultAbortHandler.run();
+
+						_abortStatement(scopeStatementTag, () -> scope.resetIfLastStatementResult(result));
+					},
+					() -> {
+					}));
+			graphDatabaseResult.onFailResult(
+				() -> _discardResult(result, () -> scope.resetIfLastStatementResult(result)));
+
+			return graphDatabaseResult;
+		}
+
+		Session session = _openSession();
+
+		StatementResult result;
+
+		try {
+			result = session.run(statement, parameters);
+		}
+		catch (RuntimeException re) {
+			session.close();
+
+			throw re;
+		}
+
+		GraphDatabaseResult graphDatabaseResult = _newGraphDatabaseResult(result);
+
+		Runnable resultAbortHandler = graphDatabaseResult.getAbortHandler();
+
+		Consumer<Runnable> resultReleaseHandler = graphDatabaseResult.getReleaseHandler();
+
+		// The session is released by whichever comes first: the owner finishing the result, the statement killer
+		// thread once an expired statement is terminated, or the reaper reclaiming an unreachable result
+
+		AtomicBoolean sessionReleased = new AtomicBoolean();
+
+		Runnable sessionCloser = () -> {
+			if (sessionReleased.compareAndSet(false, true)) {
+				session.close();
+			}
+		};
+
+		String sessionStatementTag = statementTag;
+
+		graphDatabaseResult.onCloseResult(
+			_statementReaper.track(
+				graphDatabaseResult, timeout,
+				(expired) -> {
+					abortHandler.accept(expired);
+
+					resultAbortHandler.run();
+
+					_abortStatement(
+						sessionStatementTag, () -> _resetSession(session),
+						() -> resultReleaseHandler.accept(
+							() -> {
+								if (sessionReleased.compareAndSet(false, true)) {
+									_closeAbortedSession(result, session);
+								}
+							}));
+				},
+				sessionCloser));
+		graphDatabaseResult.onFailResult(
+			() -> {
+				if (!sessionReleased.get()) {
+					_discardResult(result, () -> _resetSession(session));
+				}
+			});
+		graphDatabaseResult.onCloseResult(sessionCloser::run);
+
+		return graphDatabaseResult;
+	}
+
+	private void _runWriteBatch(List<WriteBehindQueue.Write> writes) {
+		WorkloadRecorder workloadRecorder = _workloadRecorder;
+
+		if (workloadRecorder == null) {
+			_doRunWriteBatch(writes);
+
+			return;
+		}
+
+		WorkloadRecorder.Capture capture = _beginBatchCapture(workloadRecorder, writes);
+
+		try {
+			_doRunWriteBatch(writes);
+
+			capture.complete();
+		}
+		catch (RuntimeException re) {
+			capture.fail();
+
+			throw re;
+		}
+	}
+
+	private void _doRunWriteBatch(List<WriteBehindQueue.Write> writes) {
+		if (_isEmbeddedExecution()) {
+			_getEmbeddedGraphDatabase().runWriteBatch(writes);
+
+			return;
+		}
+
+		try (Session session = _openSession()) {
+			session.writeTransaction(
+				(transaction) -> {
+					for (WriteBehindQueue.Write write : writes) {
+						transaction.run(write.getStatement(), write.getParameters());
+					}
+
+					return null;
+				});
+		}
+	}
+
+	private GraphDatabaseResult _newGraphDatabaseResult(StatementResult statementResult) {
+		return _newGraphDatabaseResult().run(() -> statementResult);
+	}
+
+	private GraphDatabaseResult _newGraphDatabaseResult() {
+		GraphDatabaseResult graphDatabaseResult = new GraphDatabaseResult();
+
+		graphDatabaseResult.setMaterializationLimits(_resultHeapBudget, _graphDatabaseConfiguration.resultMaxRecords());
+
+		if (!_resultListeners.isEmpty()) {
+			for (GraphDatabaseResultListener resultListener : _resultListeners) {
+				graphDatabaseResult.addListener(resultListener);
+			}
+		}
+
+		return graphDatabaseResult;
+	}
+
+	private void _abortStatement(String statementTag, Runnable resetHandler) {
+		_abortStatement(
+			statementTag, resetHandler,
+			() -> {
+			});
+	}
+
+	/**
+	 * Aborts a running Bolt statement. A tagged statement is killed on the server by the statement killer thread, so
+	 * the reaper thread never waits for a connection of the pool. Untagged statements, and every statement on servers
+	 * which cannot list and kill queries, are aborted by resetting their session instead. The session is released on
+	 * the statement killer thread as well, since acknowledging the termination waits for the server.
+	 *
+	 * @param statementTag the tag parameter of the statement, null if the statement is not tagged
+	 * @param resetHandler resets the session running the statement
+	 * @param releaseHandler releases the session once the statement is terminated, it runs even if terminating the
+	 *                       statement fails
+	 */
+	private void _abortStatement(String statementTag, Runnable resetHandler, Runnable releaseHandler) {
+		if ((statementTag == null) || _killStatementUnsupported) {
+			try {
+				resetHandler.run();
+			}
+			finally {
+				_killStatementExecutorService.execute(releaseHandler);
+			}
+
+			return;
+		}
+
+		_killStatementExecutorService.execute(
+			() -> {
+				try {
+					if (!_killStatement(statementTag)) {
+						resetHandler.run();
+					}
+				}
+				catch (RuntimeException re) {
+
+					// The statement may have finished already or the server may be unavailable, the caller still
+					// fails the result once it reads it
+
+				}
+				finally {
+					releaseHandler.run();
+				}
+			});
+	}
+
+	/**
+	 * Closes the session of a statement terminated because its deadline expired, so the session is returned to the
+	 * pool even if the caller never reads the result again. The result is consumed first to acknowledge the
+	 * termination, the same way {@link #_discardResult(StatementResult, Runnable)} does, so the connection is returned
+	 * to the pool in a usable state. The caller is told about the termination by the abort of the result instead.
+	 */
+	private static void _closeAbortedSession(StatementResult result, Session session) {
+		try {
+			result.consume();
+		}
+		catch (RuntimeException re) {
+
+			// The statement reports that it was terminated
+
+		}
+
+		try {
+			session.close();
+		}
+		catch (RuntimeException re) {
+
+			// The session may already be broken, it is released anyway
+
+		}
+	}
+
+	/**
+	 * Terminates a running statement on the server, using a separate session so the session of the statement remains
+	 * with its owner. Statements are found by the tag parameter they were run with. The session is not counted by
+	 * {@link #getSessionOpenCount()}.
+	 *
+	 * @param statementTag the tag parameter of the statement
+	 * @return <code>false</code> if the server does not support listing and killing queries, which is only supported
+	 *         by Neo4j Enterprise
+	 */
+	private boolean _killStatement(String statementTag) {
+		try (Session session = getDriver().session()) {
+			session.run(
+				_KILL_STATEMENT_STATEMENT, Collections.singletonMap("tag", statementTag)
+			).consume();
+
+			return true;
+		}
+		catch (ClientException ce) {
+			if (_PROCEDURE_NOT_FOUND_CODE.equals(ce.code())) {
+				_killStatementUnsupported = true;
+
+				return false;
+			}
+
+			throw ce;
+		}
+	}
+
+	/**
+	 * Returns a permit to the concurrency limiter after a failed statement. Only failures signalling that the database
+	 * is overloaded decrease the concurrency limit: transient errors, an unavailable server or expired session, and
+	 * statements terminated because their deadline expired. Client errors, such as syntax errors, constraint violations
+	 * or results exceeding their maximum size, say nothing about the load of the database and release the permit.
+	 */
+	private static void _releasePermit(ConcurrencyLimiter.Permit permit, RuntimeException runtimeException) {
+		if (_isOverloaded(runtimeException)) {
+			permit.drop();
+		}
+		else {
+			permit.release();
+		}
+	}
+
+	private static boolean _isOverloaded(RuntimeException runtimeException) {
+		if ((runtimeException instanceof TransientException) ||
+			(runtimeException instanceof ServiceUnavailableException) ||
+			(runtimeException instanceof SessionExpiredException)) {
+
+			return true;
+		}
+
+		if (runtimeException instanceof ClientException) {
+			ClientException clientException = (ClientException)runtimeException;
+
+			return _TRANSACTION_TIMED_OUT_CODE.equals(clientException.code());
+		}
+
+		return false;
+	}
+
+	private Session _openSession() {
+		_sessionOpenCount.incrementAndGet();
+
+		return getDriver().session();
+	}
+
+	/**
+	 * Discards the rest of a failed or abandoned result set by resetting its session, which terminates the statement on
+	 * the server. Closing the session or consuming the result instead would pull every remaining record over the
+	 * connection. The result is consumed afterwards to acknowledge the termination, so the session can run further
+	 * statements.
+	 *
+	 * A scope is only reset while the result is the last one of its session, see
+	 * {@link GraphDatabaseSession#resetIfLastStatementResult(StatementResult)}. An earlier result of the scope is
+	 * already buffered, so consuming it only drops the buffered records and the later statements of the scope are left
+	 * running.
+	 */
+	private void _discardResult(StatementResult result, Runnable resetHandler) {
+		resetHandler.run();
+
+		try {
+			result.consume();
+		}
+		catch (RuntimeException re) {
+
+			// The statement reports that it was terminated by the reset
+
+		}
+	}
+
+	/**
+	 * Resets the session, which terminates its running statement on the server. Unlike the other methods of the
+	 * session this may be called while another thread reads the result of the statement.
+	 */
+	@SuppressWarnings("deprecation")
+	private void _resetSession(Session session) {
+		session.reset();
+	}
+
+	private EmbeddedStatementResult _runEmbeddedStatement(String statement) {
+		return _getEmbeddedGraphDatabase().run(statement);
+	}
+
+	private EmbeddedGraphDatabase _getEmbeddedGraphDatabase() {
+		if (!_EMBEDDED_DATABASE_AVAILABLE) {
+			return null;
+		}
+
+		if (_embeddedGraphDatabase == null) {
+			synchronized (this) {
+				if (_embeddedGraphDatabase == null) {
+					_embeddedGraphDatabase = new EmbeddedGraphDatabase(
+						_graphDatabaseConfiguration.embeddedDatabasePath());
+				}
+			}
+		}
+
+		return _embeddedGraphDatabase;
+	}
+
+	private void _shutdownEmbeddedGraphDatabase() {
+		synchronized (this) {
+			if (_embeddedGraphDatabase != null) {
+				_embeddedGraphDatabase.shutdown();
+
+				_embeddedGraphDatabase = null;
+			}
+		}
+	}
+
+	private boolean _isEmbeddedExecution() {
+		if (_EMBEDDED_DATABASE_AVAILABLE && _graphDatabaseConfiguration.embeddedExecutionEnabled()) {
+			return true;
+		}
+
+		return false;
+	}
+
+	private static boolean _isEmbeddedDatabaseAvailable() {
+		try {
+			Class.forName(
+				"org.neo4j.graphdb.factory.GraphDatabaseFactory", false, GraphDatabase.class.getClassLoader());
+
+			return true;
+		}
+		catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private Callable<Void> _autoCloseSessionTask(Session session, long autocloseTimeout) {
+		return () -> {
+			TimeUnit.MILLISECONDS.sleep(autocloseTimeout);
+
+			session.close();
+
+			return null;
+		};
+	}
+
+	private static final String _DEFAULT_BULKHEAD_NAME = "default";
+
+	private static final boolean _EMBEDDED_DATABASE_AVAILABLE = _isEmbeddedDatabaseAvailable();
+
+	private static final String _KILL_STATEMENT_STATEMENT =
+		"CALL dbms.listQueries() YIELD queryId, parameters WHERE parameters.liferayStatementTag = $tag " +
+			"CALL dbms.killQuery(queryId) YIELD queryId AS killedQueryId RETURN count(killedQueryId)";
+
+	private static final String _NODES_STATEMENT = "UNWIND $ids AS id MATCH (n) WHERE id(n) = id RETURN n";
+
+	private static final String _PROCEDURE_NOT_FOUND_CODE = "Neo.ClientError.Procedure.ProcedureNotFound";
+
+	private static final String _RELATIONSHIPS_STATEMENT =
+		"UNWIND $ids AS id MATCH ()-[r]->() WHERE id(r) = id RETURN r";
+
+	private static final String _STATEMENT_TAG_PARAMETER = "liferayStatementTag";
+
+	private static final String _TRANSACTION_TIMED_OUT_CODE = "Neo.ClientError.Transaction.TransactionTimedOut";
+
+	private static final Logger _logger = Logger.getLogger(GraphDatabase.class.getName());
+
+	private volatile ConcurrencyLimiter _concurrencyLimiter;
+	private volatile EmbeddedGraphDatabase _embeddedGraphDatabase;
+	private ExecutorService _killStatementExecutorService;
+	private volatile boolean _killStatementUnsupported;
 	private org.neo4j.driver.v1.Driver _neo4jDriver;
+	private volatile EntityCache<Node> _nodeCache;
+	private volatile QueryProfiler _queryProfiler;
+	private volatile EntityCache<Relationship> _relationshipCache;
+	private volatile HeapBudget _resultHeapBudget;
+	private final List<GraphDatabaseResultListener> _resultListeners = new CopyOnWriteArrayList<>();
 	private Map<String, Session> _sessionMap;
+	private final AtomicLong _sessionOpenCount = new AtomicLong();
+	private final ThreadLocal<GraphDatabaseSession> _scopes = new ThreadLocal<>();
+	private volatile WorkloadRecorder _workloadRecorder;
+	private volatile WriteBehindQueue _writeBehindQueue;
+	private StatementReaper _statementReaper;
 	private GraphDatabaseConfiguration _graphDatabaseConfiguration;
 
 }
\ No newline at end of file
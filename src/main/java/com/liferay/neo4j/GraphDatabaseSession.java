@@ -15,10 +15,13 @@
 package com.liferay.neo4j;
 
 import org.neo4j.driver.v1.*;
+import org.neo4j.driver.v1.exceptions.Neo4jException;
 import org.neo4j.driver.v1.types.TypeSystem;
 
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * @author Mate Thurzo
@@ -31,83 +34,247 @@ public class GraphDatabaseSession implements Session {
 
 		_uuid = uuid;
 		_session = session;
+		_sessionSupplier = null;
+		_closeHandler = Session::close;
+	}
+
+	/**
+	 * Creates a session which opens the wrapped Neo4j session lazily, when it is used for the first time.
+	 *
+	 * @param uuid the UUID of the session
+	 * @param bookmark the bookmark the wrapped Neo4j session is opened with, returned as the last bookmark until the
+	 *                 session is opened, may be null
+	 * @param sessionSupplier the supplier opening the wrapped Neo4j session
+	 * @param closeHandler the handler run when this session is closed, it receives the wrapped Neo4j session or null if
+	 *                     the session has never been opened, the session stays open if the handler throws an exception
+	 */
+	public GraphDatabaseSession(
+		String uuid, String bookmark, Supplier<Session> sessionSupplier, Consumer<Session> closeHandler) {
+
+		Objects.requireNonNull(uuid);
+		Objects.requireNonNull(sessionSupplier);
+		Objects.requireNonNull(closeHandler);
+
+		_uuid = uuid;
+		_bookmark = bookmark;
+		_sessionSupplier = sessionSupplier;
+		_closeHandler = closeHandler;
 	}
 
 	@Override
 	public Transaction beginTransaction() {
-		return _session.beginTransaction();
+		Session session = _getSession();
+
+		_setLastStatementResult(null);
+
+		return session.beginTransaction();
 	}
 
 	@Override
 	public Transaction beginTransaction(String bookmark) {
-		return _session.beginTransaction(bookmark);
+		Session session = _getSession();
+
+		_setLastStatementResult(null);
+
+		return session.beginTransaction(bookmark);
 	}
 
 	@Override
 	public <T> T readTransaction(TransactionWork<T> work) {
-		return _session.readTransaction(work);
+		Session session = _getSession();
+
+		_setLastStatementResult(null);
+
+		return session.readTransaction(work);
 	}
 
 	@Override
 	public <T> T writeTransaction(TransactionWork<T> work) {
-		return _session.writeTransaction(work);
+		Session session = _getSession();
+
+		_setLastStatementResult(null);
+
+		return session.writeTransaction(work);
 	}
 
 	@Override
 	public String lastBookmark() {
+		if (_session == null) {
+			return _bookmark;
+		}
+
 		return _session.lastBookmark();
 	}
 
 	@Override
 	public void reset() {
-		_session.reset();
+		_getSession().reset();
 	}
 
 	@Override
 	public boolean isOpen() {
+		if (_closed) {
+			return false;
+		}
+
+		if (_session == null) {
+			return true;
+		}
+
 		return _session.isOpen();
 	}
 
 	@Override
 	public void close() {
-		_session.close();
+		if (_closed) {
+			return;
+		}
+
+		_closeHandler.accept(_session);
+
+		_closed = true;
+
+		_setLastStatementResult(null);
 	}
 
 	@Override
 	public StatementResult run(String statementTemplate, Value parameters) {
-		return _session.run(statementTemplate, parameters);
+		Session session = _getSession();
+
+		_setLastStatementResult(null);
+
+		return _setLastStatementResult(session.run(statementTemplate, parameters));
 	}
 
 	@Override
 	public StatementResult run(String statementTemplate, Map<String, Object> statementParameters) {
-		return _session.run(statementTemplate, statementParameters);
+		Session session = _getSession();
+
+		_setLastStatementResult(null);
+
+		return _setLastStatementResult(session.run(statementTemplate, statementParameters));
 	}
 
 	@Override
 	public StatementResult run(String statementTemplate, Record statementParameters) {
-		return _session.run(statementTemplate, statementParameters);
+		Session session = _getSession();
+
+		_setLastStatementResult(null);
+
+		return _setLastStatementResult(session.run(statementTemplate, statementParameters));
 	}
 
 	@Override
 	public StatementResult run(String statementTemplate) {
-		return _session.run(statementTemplate);
+		Session session = _getSession();
+
+		_setLastStatementResult(null);
+
+		return _setLastStatementResult(session.run(statementTemplate));
 	}
 
 	@Override
 	public StatementResult run(Statement statement) {
-		return _session.run(statement);
+		Session session = _getSession();
+
+		_setLastStatementResult(null);
+
+		return _setLastStatementResult(session.run(statement));
 	}
 
 	@Override
 	public TypeSystem typeSystem() {
-		return _session.typeSystem();
+		return _getSession().typeSystem();
+	}
+
+	/**
+	 * Returns the bookmark this session was opened with.
+	 *
+	 * @return the initial bookmark of the session, null if it was opened without a bookmark
+	 */
+	public String getBookmark() {
+		return _bookmark;
 	}
 
 	public String getUuid() {
 		return _uuid;
 	}
 
+	/**
+	 * Resets the wrapped Neo4j session if the given result is the last one returned by this session. Running a
+	 * statement or beginning a transaction buffers the records of the previous result and moves the session to another
+	 * connection, so only the last result can still be streaming, and resetting the session for an earlier result
+	 * would terminate the statements and transactions which followed it instead.
+	 *
+	 * Unlike the other methods of the session this may be called while another thread uses the session. The terminated
+	 * result is consumed the next time the session is used, which acknowledges the reset so the session can run further
+	 * statements even if the reader of the result has abandoned it.
+	 *
+	 * @param statementResult the result to terminate
+	 * @return <code>true</code> if the session was reset, <code>false</code> if the result is already buffered
+	 */
+	@SuppressWarnings("deprecation")
+	public boolean resetIfLastStatementResult(StatementResult statementResult) {
+		synchronized (_lastStatementResultLock) {
+			if ((statementResult == null) || (_lastStatementResult != statementResult)) {
+				return false;
+			}
+
+			_session.reset();
+
+			_resetStatementResult = statementResult;
+
+			return true;
+		}
+	}
+
+	private Session _getSession() {
+		if (_closed) {
+			throw new IllegalStateException("Session " + _uuid + " is closed");
+		}
+
+		if (_session == null) {
+			_session = _sessionSupplier.get();
+		}
+
+		StatementResult resetStatementResult;
+
+		synchronized (_lastStatementResultLock) {
+			resetStatementResult = _resetStatementResult;
+
+			_resetStatementResult = null;
+		}
+
+		if (resetStatementResult != null) {
+			try {
+				resetStatementResult.consume();
+			}
+			catch (Neo4jException ne) {
+
+				// The statement reports that it was terminated by the reset
+
+			}
+		}
+
+		return _session;
+	}
+
+	private StatementResult _setLastStatementResult(StatementResult statementResult) {
+		synchronized (_lastStatementResultLock) {
+			_lastStatementResult = statementResult;
+		}
+
+		return statementResult;
+	}
+
+	private String _bookmark;
+	private boolean _closed;
+	private final Consumer<Session> _closeHandler;
+	private StatementResult _lastStatementResult;
+	private final Object _lastStatementResultLock = new Object();
+	private StatementResult _resetStatementResult;
 	private Session _session;
+	private final Supplier<Session> _sessionSupplier;
 	private String _uuid;
 
 }
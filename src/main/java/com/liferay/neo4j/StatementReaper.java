@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j;
+
+import com.liferay.neo4j.result.GraphDatabaseResult;
+import com.liferay.neo4j.result.GraphDatabaseResultEventHandler;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Reclaims the sessions and connections held by streamed {@link GraphDatabaseResult} objects which are not exhausted
+ * in time. A result is aborted either when its deadline expires or when it becomes unreachable without being
+ * exhausted, the latter is detected with a phantom reference. An expired result still belongs to its caller, so only
+ * the statement is aborted and the caller's thread finishes the result. The resources of an unreachable result are
+ * reclaimed by the reaper, since no other thread uses them anymore.
+ *
+ * @author Mate Thurzo
+ */
+class StatementReaper {
+
+	StatementReaper() {
+		_scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
+			(runnable) -> {
+				Thread thread = new Thread(runnable, "Neo4j Statement Reaper");
+
+				thread.setDaemon(true);
+
+				return thread;
+			});
+
+		_scheduledExecutorService.scheduleWithFixedDelay(
+			this::_reapLeakedResults, _REAP_INTERVAL, _REAP_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Starts tracking a streamed result. The returned handler must be run once the result is finished, after that the
+	 * result is no longer tracked.
+	 *
+	 * @param graphDatabaseResult the result to track, the reaper holds no strong reference to it
+	 * @param timeout the deadline of the statement in milliseconds, 0 or less for no deadline
+	 * @param abortAction the action aborting the statement of the result, it receives <code>true</code> if the deadline
+	 *                    expired and <code>false</code> if the result became unreachable, it must be safe to run while
+	 *                    the caller is reading the result and it must not reference the result itself
+	 * @param reclaimAction the action releasing the resources of the result once it is unreachable, it must not
+	 *                      reference the result itself
+	 * @return the handler to run when the result is finished
+	 */
+	GraphDatabaseResultEventHandler track(
+		GraphDatabaseResult graphDatabaseResult, long timeout, Consumer<Boolean> abortAction, Runnable reclaimAction) {
+
+		ResultReference resultReference = new ResultReference(graphDatabaseResult, abortAction, reclaimAction);
+
+		_resultReferences.add(resultReference);
+
+		if (timeout > 0) {
+			resultReference._scheduledFuture = _scheduledExecutorService.schedule(
+				resultReference::expire, timeout, TimeUnit.MILLISECONDS);
+		}
+
+		return resultReference::complete;
+	}
+
+	long getDeadlineExpiredCount() {
+		return _deadlineExpiredCount.get();
+	}
+
+	long getLeakedResultCount() {
+		return _leakedResultCount.get();
+	}
+
+	void shutdown() {
+		_scheduledExecutorService.shutdownNow();
+	}
+
+	private void _reapLeakedResults() {
+		Reference<? extends GraphDatabaseResult> reference;
+
+		while ((reference = _referenceQueue.poll()) != null) {
+			((ResultReference)reference).leak();
+		}
+	}
+
+	private static final long _REAP_INTERVAL = 1000;
+
+	private final AtomicLong _deadlineExpiredCount = new AtomicLong();
+	private final AtomicLong _leakedResultCount = new AtomicLong();
+	private final ReferenceQueue<GraphDatabaseResult> _referenceQueue = new ReferenceQueue<>();
+	private final Set<ResultReference> _resultReferences = Collections.newSetFromMap(new ConcurrentHashMap<>());
+	private final ScheduledExecutorService _scheduledExecutorService;
+
+	private class ResultReference extends PhantomReference<GraphDatabaseResult> {
+
+		public void complete() {
+			_finish();
+		}
+
+		public void expire() {
+			if (!_finished.get() && _aborted.compareAndSet(false, true)) {
+				_deadlineExpiredCount.incrementAndGet();
+
+				_run(() -> _abortAction.accept(true));
+			}
+		}
+
+		public void leak() {
+			if (_finish()) {
+				_leakedResultCount.incrementAndGet();
+
+				if (_aborted.compareAndSet(false, true)) {
+					_run(() -> _abortAction.accept(false));
+				}
+
+				_run(_reclaimAction);
+			}
+		}
+
+		private ResultReference(
+			GraphDatabaseResult graphDatabaseResult, Consumer<Boolean> abortAction, Runnable reclaimAction) {
+
+			super(graphDatabaseResult, _referenceQueue);
+
+			_abortAction = abortAction;
+			_reclaimAction = reclaimAction;
+		}
+
+		private void _run(Runnable action) {
+			try {
+				action.run();
+			}
+			catch (RuntimeException re) {
+
+				// The session may already be broken or closed by its owner, there is nothing left to reclaim
+
+			}
+		}
+
+		private boolean _finish() {
+			if (!_finished.compareAndSet(false, true)) {
+				return false;
+			}
+
+			_resultReferences.remove(this);
+
+			clear();
+
+			if (_scheduledFuture != null) {
+				_scheduledFuture.cancel(false);
+			}
+
+			return true;
+		}
+
+		private final Consumer<Boolean> _abortAction;
+		private final AtomicBoolean _aborted = new AtomicBoolean();
+		private final AtomicBoolean _finished = new AtomicBoolean();
+		private final Runnable _reclaimAction;
+		private volatile ScheduledFuture<?> _scheduledFuture;
+
+	}
+
+}
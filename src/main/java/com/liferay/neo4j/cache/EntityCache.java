@@ -0,0 +1,428 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.cache;
+
+import com.liferay.neo4j.result.HeapSizeEstimator;
+import org.neo4j.driver.v1.types.Entity;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Size bounded cache of nodes or relationships keyed by their internal id. Entries are kept in an open-addressing
+ * table of primitive long keys with linear probing, so lookups do not box the ids or allocate map entries. When the
+ * cache is full an entry is evicted with the clock (second chance) algorithm: every lookup marks the entry as
+ * referenced and the clock hand skips, and unmarks, referenced entries until it finds one which has not been used since
+ * its last pass.
+ *
+ * The cache is not aware of writes made to the database, callers updating or deleting cached entities have to
+ * {@link #remove(long)} them.
+ *
+ * @author Mate Thurzo
+ */
+public class EntityCache<T extends Entity> {
+
+	/**
+	 * Creates an <code>EntityCache</code> object.
+	 *
+	 * @param maxSize the maximum number of cached entities
+	 */
+	public EntityCache(int maxSize) {
+		_maxSize = Math.max(1, maxSize);
+
+		int capacity = 2;
+
+		while ((capacity * _LOAD_FACTOR) < _maxSize) {
+			capacity <<= 1;
+		}
+
+		_mask = capacity - 1;
+		_shift = 64 - Integer.numberOfTrailingZeros(capacity);
+
+		_keys = new long[capacity];
+		_referenced = new boolean[capacity];
+		_sizes = new int[capacity];
+		_values = new Object[capacity];
+
+		Arrays.fill(_keys, _EMPTY_KEY);
+	}
+
+	/**
+	 * Removes every entity from the cache. The hit, miss and eviction counters are kept.
+	 */
+	public void clear() {
+		Lock writeLock = _readWriteLock.writeLock();
+
+		writeLock.lock();
+
+		try {
+			Arrays.fill(_keys, _EMPTY_KEY);
+			Arrays.fill(_referenced, false);
+			Arrays.fill(_sizes, 0);
+			Arrays.fill(_values, null);
+
+			_entitySize = 0;
+			_size = 0;
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the cached entity with the given id.
+	 *
+	 * @param id the internal id of the entity
+	 * @return the cached entity, null if the entity is not cached
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(long id) {
+		Lock readLock = _readWriteLock.readLock();
+
+		readLock.lock();
+
+		try {
+			int slot = _findSlot(id);
+
+			if (slot < 0) {
+				_missCount.increment();
+
+				return null;
+			}
+
+			_referenced[slot] = true;
+
+			_hitCount.increment();
+
+			return (T)_values[slot];
+		}
+		finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Looks up several entities at once. The cached entities are stored in the given array at the position of their id,
+	 * the positions of the ids which are not cached are left untouched.
+	 *
+	 * @param ids the internal ids of the entities
+	 * @param entities the array receiving the cached entities, at least as long as the ids array
+	 * @return the number of ids which are not cached
+	 */
+	@SuppressWarnings("unchecked")
+	public int getAll(long[] ids, T[] entities) {
+		int missCount = 0;
+
+		Lock readLock = _readWriteLock.readLock();
+
+		readLock.lock();
+
+		try {
+			for (int i = 0; i < ids.length; i++) {
+				int slot = _findSlot(ids[i]);
+
+				if (slot < 0) {
+					missCount++;
+				}
+				else {
+					_referenced[slot] = true;
+
+					entities[i] = (T)_values[slot];
+				}
+			}
+		}
+		finally {
+			readLock.unlock();
+		}
+
+		_hitCount.add(ids.length - missCount);
+		_missCount.add(missCount);
+
+		return missCount;
+	}
+
+	/**
+	 * Returns the number of entities evicted to make room for new entities.
+	 *
+	 * @return the number of evictions
+	 */
+	public long getEvictionCount() {
+		return _evictionCount.sum();
+	}
+
+	/**
+	 * Returns the number of lookups which found the entity in the cache.
+	 *
+	 * @return the number of cache hits
+	 */
+	public long getHitCount() {
+		return _hitCount.sum();
+	}
+
+	/**
+	 * Returns the ratio of lookups which found the entity in the cache.
+	 *
+	 * @return the hit rate between 0 and 1, 0 if no lookup has been made
+	 */
+	public double getHitRate() {
+		long hitCount = _hitCount.sum();
+
+		long lookupCount = hitCount + _missCount.sum();
+
+		if (lookupCount == 0) {
+			return 0;
+		}
+
+		return (double)hitCount / lookupCount;
+	}
+
+	public int getMaxSize() {
+		return _maxSize;
+	}
+
+	/**
+	 * Returns the approximate number of bytes the cache takes on the heap, which is the size of its table plus the
+	 * estimated size of the cached entities.
+	 *
+	 * @return the estimated heap size of the cache in bytes
+	 */
+	public long getMemoryUsage() {
+		long tableSize = (long)_keys.length * (8 + 1 + 4 + 8);
+
+		Lock readLock = _readWriteLock.readLock();
+
+		readLock.lock();
+
+		try {
+			return tableSize + _entitySize;
+		}
+		finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of lookups which did not find the entity in the cache.
+	 *
+	 * @return the number of cache misses
+	 */
+	public long getMissCount() {
+		return _missCount.sum();
+	}
+
+	/**
+	 * Returns the number of cached entities.
+	 *
+	 * @return the number of cached entities
+	 */
+	public int getSize() {
+		Lock readLock = _readWriteLock.readLock();
+
+		readLock.lock();
+
+		try {
+			return _size;
+		}
+		finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Adds an entity to the cache, replacing the entity cached with the same id. When the cache is full an entity which
+	 * has not been looked up recently is evicted.
+	 *
+	 * @param entity the entity to cache
+	 */
+	public void put(T entity) {
+		long id = entity.id();
+
+		if (id < 0) {
+			throw new IllegalArgumentException("Invalid entity id " + id);
+		}
+
+		int size = (int)Math.min(Integer.MAX_VALUE, HeapSizeEstimator.estimateSize(entity));
+
+		Lock writeLock = _readWriteLock.writeLock();
+
+		writeLock.lock();
+
+		try {
+			int slot = _findSlot(id);
+
+			if (slot < 0) {
+				if (_size >= _maxSize) {
+					_evict();
+				}
+
+				slot = _home(id);
+
+				while (_keys[slot] != _EMPTY_KEY) {
+					slot = (slot + 1) & _mask;
+				}
+
+				_keys[slot] = id;
+
+				_size++;
+			}
+			else {
+				_entitySize -= _sizes[slot];
+			}
+
+			_referenced[slot] = true;
+			_sizes[slot] = size;
+			_values[slot] = entity;
+
+			_entitySize += size;
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the entity with the given id from the cache.
+	 *
+	 * @param id the internal id of the entity
+	 * @return <code>true</code> if the entity was cached
+	 */
+	public boolean remove(long id) {
+		Lock writeLock = _readWriteLock.writeLock();
+
+		writeLock.lock();
+
+		try {
+			int slot = _findSlot(id);
+
+			if (slot < 0) {
+				return false;
+			}
+
+			_removeSlot(slot);
+
+			return true;
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+	private void _evict() {
+		while (true) {
+			int slot = _clockHand;
+
+			_clockHand = (slot + 1) & _mask;
+
+			if (_keys[slot] == _EMPTY_KEY) {
+				continue;
+			}
+
+			if (_referenced[slot]) {
+				_referenced[slot] = false;
+
+				continue;
+			}
+
+			_removeSlot(slot);
+
+			_evictionCount.increment();
+
+			return;
+		}
+	}
+
+	private int _findSlot(long id) {
+		if (id < 0) {
+			return -1;
+		}
+
+		int slot = _home(id);
+
+		long key;
+
+		while ((key = _keys[slot]) != _EMPTY_KEY) {
+			if (key == id) {
+				return slot;
+			}
+
+			slot = (slot + 1) & _mask;
+		}
+
+		return -1;
+	}
+
+	private int _home(long id) {
+		return (int)((id * _HASH_MULTIPLIER) >>> _shift);
+	}
+
+	/**
+	 * Empties a slot and shifts the following entries of its probe sequence back, so lookups never have to skip deleted
+	 * slots.
+	 */
+	private void _removeSlot(int slot) {
+		_entitySize -= _sizes[slot];
+
+		_size--;
+
+		int hole = slot;
+		int next = (slot + 1) & _mask;
+
+		long key;
+
+		while ((key = _keys[next]) != _EMPTY_KEY) {
+			int home = _home(key);
+
+			if (((next - home) & _mask) >= ((next - hole) & _mask)) {
+				_keys[hole] = key;
+				_referenced[hole] = _referenced[next];
+				_sizes[hole] = _sizes[next];
+				_values[hole] = _values[next];
+
+				hole = next;
+			}
+
+			next = (next + 1) & _mask;
+		}
+
+		_keys[hole] = _EMPTY_KEY;
+		_referenced[hole] = false;
+		_sizes[hole] = 0;
+		_values[hole] = null;
+	}
+
+	private static final long _EMPTY_KEY = -1;
+
+	private static final long _HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private static final float _LOAD_FACTOR = 0.75F;
+
+	private int _clockHand;
+	private long _entitySize;
+	private final LongAdder _evictionCount = new LongAdder();
+	private final LongAdder _hitCount = new LongAdder();
+	private final long[] _keys;
+	private final int _mask;
+	private final int _maxSize;
+	private final LongAdder _missCount = new LongAdder();
+	private final ReentrantReadWriteLock _readWriteLock = new ReentrantReadWriteLock();
+	private final boolean[] _referenced;
+	private final int _shift;
+	private int _size;
+	private final int[] _sizes;
+	private final Object[] _values;
+
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.capture;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.kernel.configuration.BoltConnector;
+
+import java.io.File;
+import java.net.URI;
+
+/**
+ * Runs an embedded Neo4j database accepting Bolt connections for {@link WorkloadReplayer}. Every reference to the
+ * engine API of the replayer is kept in this class, so the replayer can be loaded without the embedded engine on the
+ * class path. Accepting Bolt connections also requires the <code>org.neo4j:neo4j-bolt</code> artifact, which is not
+ * part of the embedded engine fragment.
+ *
+ * @author Mate Thurzo
+ */
+class EmbeddedBoltServer implements AutoCloseable {
+
+	EmbeddedBoltServer(String embeddedDatabasePath, URI uri) {
+		GraphDatabaseFactory graphDatabaseFactory = new GraphDatabaseFactory();
+
+		BoltConnector boltConnector = new BoltConnector("bolt");
+
+		_graphDatabaseService = graphDatabaseFactory.newEmbeddedDatabaseBuilder(
+			new File(embeddedDatabasePath)
+		).setConfig(
+			boltConnector.enabled, "true"
+		).setConfig(
+			boltConnector.listen_address, uri.getHost() + ":" + uri.getPort()
+		).newGraphDatabase();
+	}
+
+	@Override
+	public void close() {
+		_graphDatabaseService.shutdown();
+	}
+
+	private final GraphDatabaseService _graphDatabaseService;
+
+}
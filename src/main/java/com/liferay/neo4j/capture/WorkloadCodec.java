@@ -0,0 +1,352 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.capture;
+
+import org.neo4j.driver.v1.Value;
+
+import java.lang.reflect.Array;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the records of a workload capture log. Integers are written as variable length quantities and
+ * parameter values are prefixed with a one byte type tag, so a typical statement record takes a few dozen bytes besides
+ * the statement text.
+ *
+ * A log starts with a header of a 4 byte magic number, a 1 byte format version and the 8 byte capture start time in
+ * epoch milliseconds. Every record is prefixed with its 4 byte length and consists of its type, failure flag, start
+ * offset and duration in nanoseconds, thread id, number of in-flight statements when it started, and its statements
+ * with their parameters.
+ *
+ * Parameter values are encoded the way the Neo4j driver sends them, arrays of primitives as lists and driver values as
+ * their Java counterparts. Values of any other type are rejected rather than being replayed as something else.
+ *
+ * @author Mate Thurzo
+ */
+final class WorkloadCodec {
+
+	static final int HEADER_LENGTH = 13;
+
+	static final int MAGIC = 0x4E34574C;
+
+	static final byte VERSION = 1;
+
+	static Object decodeValue(ByteBuffer byteBuffer) {
+		byte tag = byteBuffer.get();
+
+		switch (tag) {
+			case _TAG_NULL:
+				return null;
+			case _TAG_FALSE:
+				return Boolean.FALSE;
+			case _TAG_TRUE:
+				return Boolean.TRUE;
+			case _TAG_LONG:
+				long zigzag = readVarLong(byteBuffer);
+
+				return (zigzag >>> 1) ^ -(zigzag & 1);
+			case _TAG_DOUBLE:
+				return byteBuffer.getDouble();
+			case _TAG_STRING:
+				return readString(byteBuffer);
+			case _TAG_BYTES:
+				byte[] bytes = new byte[readVarInt(byteBuffer)];
+
+				byteBuffer.get(bytes);
+
+				return bytes;
+			case _TAG_LIST:
+				int size = readVarInt(byteBuffer);
+
+				List<Object> list = new ArrayList<>(size);
+
+				for (int i = 0; i < size; i++) {
+					list.add(decodeValue(byteBuffer));
+				}
+
+				return list;
+			case _TAG_MAP:
+				return decodeMap(byteBuffer);
+			default:
+				throw new IllegalArgumentException("Unknown value tag " + tag);
+		}
+	}
+
+	static Map<String, Object> decodeMap(ByteBuffer byteBuffer) {
+		int size = readVarInt(byteBuffer);
+
+		Map<String, Object> map = new LinkedHashMap<>();
+
+		for (int i = 0; i < size; i++) {
+			String key = readString(byteBuffer);
+
+			map.put(key, decodeValue(byteBuffer));
+		}
+
+		return map;
+	}
+
+	static int readVarInt(ByteBuffer byteBuffer) {
+		return (int)readVarLong(byteBuffer);
+	}
+
+	static long readVarLong(ByteBuffer byteBuffer) {
+		long value = 0;
+
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = byteBuffer.get();
+
+			value |= (long)(b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IllegalArgumentException("Malformed variable length quantity");
+	}
+
+	static String readString(ByteBuffer byteBuffer) {
+		int length = readVarInt(byteBuffer);
+
+		if (length > byteBuffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+
+		String string = new String(
+			byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), length, StandardCharsets.UTF_8);
+
+		byteBuffer.position(byteBuffer.position() + length);
+
+		return string;
+	}
+
+	/**
+	 * Growable byte array a record is encoded into before it is appended to the log.
+	 */
+	static final class Encoder {
+
+		byte[] getBytes() {
+			return _bytes;
+		}
+
+		int getSize() {
+			return _size;
+		}
+
+		void reset() {
+			_size = 0;
+		}
+
+		void setInt(int index, int value) {
+			_bytes[index] = (byte)(value >>> 24);
+			_bytes[index + 1] = (byte)(value >>> 16);
+			_bytes[index + 2] = (byte)(value >>> 8);
+			_bytes[index + 3] = (byte)value;
+		}
+
+		void writeByte(int value) {
+			_ensureCapacity(1);
+
+			_bytes[_size++] = (byte)value;
+		}
+
+		void writeInt(int value) {
+			_ensureCapacity(4);
+
+			setInt(_size, value);
+
+			_size += 4;
+		}
+
+		void writeLong(long value) {
+			writeInt((int)(value >>> 32));
+			writeInt((int)value);
+		}
+
+		void writeMap(Map<?, ?> map) {
+			if (map == null) {
+				writeVarInt(0);
+
+				return;
+			}
+
+			writeVarInt(map.size());
+
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				writeString(String.valueOf(entry.getKey()));
+				writeValue(entry.getValue());
+			}
+		}
+
+		void writeString(String string) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+
+			writeVarInt(bytes.length);
+
+			_write(bytes);
+		}
+
+		void writeValue(Object value) {
+			if (value == null) {
+				writeByte(_TAG_NULL);
+			}
+			else if (value instanceof Boolean) {
+				if ((Boolean)value) {
+					writeByte(_TAG_TRUE);
+				}
+				else {
+					writeByte(_TAG_FALSE);
+				}
+			}
+			else if ((value instanceof Long) || (value instanceof Integer) || (value instanceof Short) ||
+					 (value instanceof Byte)) {
+
+				long longValue = ((Number)value).longValue();
+
+				writeByte(_TAG_LONG);
+				writeVarLong((longValue << 1) ^ (longValue >> 63));
+			}
+			else if ((value instanceof Double) || (value instanceof Float)) {
+				writeByte(_TAG_DOUBLE);
+				writeLong(Double.doubleToRawLongBits(((Number)value).doubleValue()));
+			}
+			else if ((value instanceof String) || (value instanceof Character)) {
+				writeByte(_TAG_STRING);
+				writeString(value.toString());
+			}
+			else if (value instanceof char[]) {
+				writeByte(_TAG_STRING);
+				writeString(new String((char[])value));
+			}
+			else if (value instanceof byte[]) {
+				byte[] bytes = (byte[])value;
+
+				writeByte(_TAG_BYTES);
+				writeVarInt(bytes.length);
+
+				_write(bytes);
+			}
+			else if (value instanceof Value) {
+				writeValue(((Value)value).asObject());
+			}
+			else if (value instanceof Collection) {
+				Collection<?> collection = (Collection<?>)value;
+
+				writeByte(_TAG_LIST);
+				writeVarInt(collection.size());
+
+				for (Object element : collection) {
+					writeValue(element);
+				}
+			}
+			else if (value instanceof Iterable) {
+				List<Object> list = new ArrayList<>();
+
+				for (Object element : (Iterable<?>)value) {
+					list.add(element);
+				}
+
+				writeValue(list);
+			}
+			else if (value instanceof Object[]) {
+				writeValue(Arrays.asList((Object[])value));
+			}
+			else if (value.getClass().isArray()) {
+
+				// Arrays of the other primitive types, their elements are boxed and encoded as a list
+
+				int length = Array.getLength(value);
+
+				writeByte(_TAG_LIST);
+				writeVarInt(length);
+
+				for (int i = 0; i < length; i++) {
+					writeValue(Array.get(value, i));
+				}
+			}
+			else if (value instanceof Map) {
+				writeByte(_TAG_MAP);
+				writeMap((Map<?, ?>)value);
+			}
+			else {
+				throw new IllegalArgumentException("Unsupported parameter type " + value.getClass().getName());
+			}
+		}
+
+		void writeVarInt(int value) {
+			writeVarLong(value & 0xFFFFFFFFL);
+		}
+
+		void writeVarLong(long value) {
+			_ensureCapacity(10);
+
+			while ((value & ~0x7FL) != 0) {
+				_bytes[_size++] = (byte)((value & 0x7F) | 0x80);
+
+				value >>>= 7;
+			}
+
+			_bytes[_size++] = (byte)value;
+		}
+
+		private void _ensureCapacity(int length) {
+			if ((_size + length) > _bytes.length) {
+				_bytes = Arrays.copyOf(_bytes, Math.max(_bytes.length * 2, _size + length));
+			}
+		}
+
+		private void _write(byte[] bytes) {
+			_ensureCapacity(bytes.length);
+
+			System.arraycopy(bytes, 0, _bytes, _size, bytes.length);
+
+			_size += bytes.length;
+		}
+
+		private byte[] _bytes = new byte[256];
+		private int _size;
+
+	}
+
+	private WorkloadCodec() {
+	}
+
+	private static final byte _TAG_BYTES = 8;
+
+	private static final byte _TAG_DOUBLE = 4;
+
+	private static final byte _TAG_FALSE = 1;
+
+	private static final byte _TAG_LIST = 6;
+
+	private static final byte _TAG_LONG = 3;
+
+	private static final byte _TAG_MAP = 7;
+
+	private static final byte _TAG_NULL = 0;
+
+	private static final byte _TAG_STRING = 5;
+
+	private static final byte _TAG_TRUE = 2;
+
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.capture;
+
+import org.neo4j.driver.v1.Statement;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the records of a workload capture log written by {@link WorkloadRecorder} in the order they were written,
+ * which is the order the captured executions finished in. A truncated record at the end of the log, left behind by a
+ * JVM which was not shut down cleanly, is ignored.
+ *
+ * @author Mate Thurzo
+ */
+public class WorkloadReader implements Closeable {
+
+	/**
+	 * Opens a workload capture log and reads its header.
+	 *
+	 * @param path the file of the capture log
+	 * @throws IOException if the file could not be read or it is not a capture log
+	 */
+	public WorkloadReader(Path path) throws IOException {
+		_fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+
+		_byteBuffer.flip();
+
+		if (!_fill(WorkloadCodec.HEADER_LENGTH) || (_byteBuffer.getInt() != WorkloadCodec.MAGIC)) {
+			_fileChannel.close();
+
+			throw new IOException(path + " is not a workload capture log");
+		}
+
+		byte version = _byteBuffer.get();
+
+		if (version != WorkloadCodec.VERSION) {
+			_fileChannel.close();
+
+			throw new IOException("Unsupported workload capture log version " + version);
+		}
+
+		_captureStartTime = _byteBuffer.getLong();
+	}
+
+	@Override
+	public void close() throws IOException {
+		_fileChannel.close();
+	}
+
+	/**
+	 * Returns the time the capture was started at.
+	 *
+	 * @return the start of the capture in epoch milliseconds
+	 */
+	public long getCaptureStartTime() {
+		return _captureStartTime;
+	}
+
+	/**
+	 * Reads the next record of the capture log.
+	 *
+	 * @return the next record, null if the end of the log is reached
+	 * @throws IOException if the file could not be read or the record is malformed
+	 */
+	public WorkloadRecord read() throws IOException {
+		if (!_fill(4)) {
+			return null;
+		}
+
+		int length = _byteBuffer.getInt();
+
+		if (length < 0) {
+			throw new IOException("Malformed workload capture record length " + length);
+		}
+
+		if (!_fill(length)) {
+			return null;
+		}
+
+		ByteBuffer record = _byteBuffer.slice();
+
+		record.limit(length);
+
+		_byteBuffer.position(_byteBuffer.position() + length);
+
+		try {
+			return _decode(record);
+		}
+		catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("Malformed workload capture record", e);
+		}
+	}
+
+	/**
+	 * Reads every remaining record of the capture log.
+	 *
+	 * @return the remaining records
+	 * @throws IOException if the file could not be read or a record is malformed
+	 */
+	public List<WorkloadRecord> readAll() throws IOException {
+		List<WorkloadRecord> workloadRecords = new ArrayList<>();
+
+		WorkloadRecord workloadRecord;
+
+		while ((workloadRecord = read()) != null) {
+			workloadRecords.add(workloadRecord);
+		}
+
+		return workloadRecords;
+	}
+
+	private WorkloadRecord _decode(ByteBuffer record) throws IOException {
+		int ordinal = record.get();
+
+		WorkloadRecordType[] types = WorkloadRecordType.values();
+
+		if ((ordinal < 0) || (ordinal >= types.length)) {
+			throw new IOException("Malformed workload capture record");
+		}
+
+		WorkloadRecordType type = types[ordinal];
+
+		boolean failed = record.get() != 0;
+		long startOffset = WorkloadCodec.readVarLong(record);
+		long duration = WorkloadCodec.readVarLong(record);
+		long threadId = WorkloadCodec.readVarLong(record);
+		int inFlight = WorkloadCodec.readVarInt(record);
+		int size = WorkloadCodec.readVarInt(record);
+
+		List<Statement> statements = new ArrayList<>(size);
+
+		for (int i = 0; i < size; i++) {
+			String text = WorkloadCodec.readString(record);
+
+			statements.add(new Statement(text, WorkloadCodec.decodeMap(record)));
+		}
+
+		return new WorkloadRecord(type, failed, startOffset, duration, threadId, inFlight, statements);
+	}
+
+	private boolean _fill(int length) throws IOException {
+		if (_byteBuffer.remaining() >= length) {
+			return true;
+		}
+
+		if (length > _byteBuffer.capacity()) {
+			ByteBuffer byteBuffer = ByteBuffer.allocate(length);
+
+			byteBuffer.put(_byteBuffer);
+
+			_byteBuffer = byteBuffer;
+		}
+		else {
+			_byteBuffer.compact();
+		}
+
+		while (_byteBuffer.position() < length) {
+			if (_fileChannel.read(_byteBuffer) < 0) {
+				_byteBuffer.flip();
+
+				return false;
+			}
+		}
+
+		_byteBuffer.flip();
+
+		return true;
+	}
+
+	private ByteBuffer _byteBuffer = ByteBuffer.allocate(65536);
+	private final long _captureStartTime;
+	private final FileChannel _fileChannel;
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.capture;
+
+import org.neo4j.driver.v1.Statement;
+
+import java.util.List;
+
+/**
+ * A statement, or a batch of write-behind statements, read from a workload capture log.
+ *
+ * @author Mate Thurzo
+ */
+public class WorkloadRecord {
+
+	public WorkloadRecord(
+		WorkloadRecordType type, boolean failed, long startOffset, long duration, long threadId, int inFlight,
+		List<Statement> statements) {
+
+		_type = type;
+		_failed = failed;
+		_startOffset = startOffset;
+		_duration = duration;
+		_threadId = threadId;
+		_inFlight = inFlight;
+		_statements = statements;
+	}
+
+	/**
+	 * Returns the time the captured execution took.
+	 *
+	 * @return the duration of the execution in nanoseconds
+	 */
+	public long getDuration() {
+		return _duration;
+	}
+
+	/**
+	 * Returns the number of captured executions in flight when this execution started, including itself.
+	 *
+	 * @return the number of in-flight executions
+	 */
+	public int getInFlight() {
+		return _inFlight;
+	}
+
+	/**
+	 * Returns the time the execution started at.
+	 *
+	 * @return the start of the execution in nanoseconds, relative to the start of the capture
+	 */
+	public long getStartOffset() {
+		return _startOffset;
+	}
+
+	public List<Statement> getStatements() {
+		return _statements;
+	}
+
+	public long getThreadId() {
+		return _threadId;
+	}
+
+	public WorkloadRecordType getType() {
+		return _type;
+	}
+
+	public boolean isFailed() {
+		return _failed;
+	}
+
+	private final long _duration;
+	private final boolean _failed;
+	private final int _inFlight;
+	private final long _startOffset;
+	private final List<Statement> _statements;
+	private final long _threadId;
+	private final WorkloadRecordType _type;
+
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.capture;
+
+/**
+ * Defines how a captured statement was executed by {@link com.liferay.neo4j.GraphDatabase}.
+ *
+ * @author Mate Thurzo
+ */
+public enum WorkloadRecordType {
+
+	/**
+	 * A statement run with <code>runImmediateStatement</code>, its duration covers the statement run.
+	 */
+	IMMEDIATE,
+
+	/**
+	 * A statement run with <code>runStatement</code>, its duration lasts until the result set is exhausted.
+	 */
+	STREAMED,
+
+	/**
+	 * A batch of write-behind statements executed in a single write transaction.
+	 */
+	WRITE_BATCH
+
+}
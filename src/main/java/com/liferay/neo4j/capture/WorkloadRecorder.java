@@ -0,0 +1,365 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Captures the statements executed by {@link com.liferay.neo4j.GraphDatabase} into an append-only binary log, which
+ * can be replayed later with {@link WorkloadReplayer}. Each record holds the statements with their parameters, the
+ * time the execution started relative to the start of the capture, its duration, the calling thread and the number of
+ * statements in flight, so the replay reproduces both the timing and the concurrency of the original workload.
+ *
+ * Finished captures are handed to a background writer thread, which encodes them and appends them to a direct buffer
+ * written to the file channel only when it is full, so the calling thread neither converts nor encodes the statements
+ * and never waits for the disk. The parameters of a statement are read by the writer thread, they must not be modified
+ * once the statement is captured. Captures finishing while the writer is too far behind are dropped and counted by
+ * {@link #getDroppedCount()}. An I/O error stops the capture, it never fails the statement being captured.
+ *
+ * @author Mate Thurzo
+ */
+public class WorkloadRecorder {
+
+	/**
+	 * Creates a <code>WorkloadRecorder</code> object writing a new capture log to the given file.
+	 *
+	 * @param path the file of the capture log, its parent directories are created if needed
+	 * @throws IOException if the capture log could not be created
+	 */
+	public WorkloadRecorder(Path path) throws IOException {
+		Path parentPath = path.toAbsolutePath().getParent();
+
+		if (parentPath != null) {
+			Files.createDirectories(parentPath);
+		}
+
+		_path = path;
+
+		_fileChannel = FileChannel.open(
+			path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+		_startNanos = System.nanoTime();
+
+		_executorService = new ThreadPoolExecutor(
+			1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(_QUEUE_CAPACITY),
+			(runnable) -> {
+				Thread thread = new Thread(runnable, "Neo4j Workload Recorder");
+
+				thread.setDaemon(true);
+
+				return thread;
+			},
+			(runnable, threadPoolExecutor) -> _droppedCount.incrementAndGet());
+
+		_byteBuffer.putInt(WorkloadCodec.MAGIC);
+		_byteBuffer.put(WorkloadCodec.VERSION);
+		_byteBuffer.putLong(System.currentTimeMillis());
+	}
+
+	/**
+	 * Starts capturing the execution of a single statement.
+	 *
+	 * @param type the way the statement is executed
+	 * @param statement the Cypher statement
+	 * @param parameters the parameters of the statement, null if there are none
+	 * @return the capture which must be completed or failed once the execution is finished
+	 */
+	public Capture begin(WorkloadRecordType type, String statement, Map<String, Object> parameters) {
+		return new Capture(this, type, Collections.singletonList(statement), Collections.singletonList(parameters));
+	}
+
+	/**
+	 * Starts capturing the execution of a batch of write-behind statements.
+	 *
+	 * @param statements the Cypher statements executed in a single write transaction
+	 * @param parameters the parameters of each statement, at the index of the statement, null if there are none
+	 * @return the capture which must be completed or failed once the batch is executed
+	 */
+	public Capture beginBatch(List<String> statements, List<Map<String, Object>> parameters) {
+		return new Capture(this, WorkloadRecordType.WRITE_BATCH, statements, parameters);
+	}
+
+	/**
+	 * Waits for the writer thread to record the captures which have already finished, then writes the buffered records
+	 * to the capture log and closes it. Captures finishing afterwards are not recorded.
+	 */
+	public void close() {
+		_closed = true;
+
+		_executorService.shutdown();
+
+		try {
+			_executorService.awaitTermination(_CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (_byteBuffer) {
+			if (!_fileChannel.isOpen()) {
+				return;
+			}
+
+			try {
+				_drain();
+			}
+			catch (IOException ioe) {
+				_errorCount.incrementAndGet();
+			}
+
+			_close();
+		}
+	}
+
+	/**
+	 * Returns the number of captures dropped because they finished while the writer thread was too far behind.
+	 *
+	 * @return the number of dropped captures
+	 */
+	public long getDroppedCount() {
+		return _droppedCount.get();
+	}
+
+	/**
+	 * Returns the number of records dropped because the capture log could not be written.
+	 *
+	 * @return the number of records which failed to be written
+	 */
+	public long getErrorCount() {
+		return _errorCount.get();
+	}
+
+	public Path getPath() {
+		return _path;
+	}
+
+	/**
+	 * Returns the number of records written to the capture log.
+	 *
+	 * @return the number of captured records
+	 */
+	public long getRecordCount() {
+		return _recordCount.get();
+	}
+
+	/**
+	 * The execution of a captured statement or batch of statements.
+	 */
+	public static class Capture {
+
+		/**
+		 * A capture which records nothing, used when workload capture is disabled.
+		 */
+		public static final Capture NONE = new Capture(null, null, Collections.emptyList(), Collections.emptyList());
+
+		/**
+		 * Records the execution as successful. Only the first call of {@link #complete()} or {@link #fail()} is
+		 * recorded.
+		 */
+		public void complete() {
+			_finish(false);
+		}
+
+		/**
+		 * Records the execution as failed. Only the first call of {@link #complete()} or {@link #fail()} is recorded.
+		 */
+		public void fail() {
+			_finish(true);
+		}
+
+		private Capture(
+			WorkloadRecorder workloadRecorder, WorkloadRecordType type, List<String> statements,
+			List<Map<String, Object>> parameters) {
+
+			_workloadRecorder = workloadRecorder;
+			_type = type;
+			_statements = statements;
+			_parameters = parameters;
+
+			_startNanos = System.nanoTime();
+
+			if (workloadRecorder == null) {
+				_inFlight = 0;
+			}
+			else {
+				_inFlight = workloadRecorder._inFlight.incrementAndGet();
+			}
+
+			_threadId = Thread.currentThread().getId();
+		}
+
+		private void _finish(boolean failed) {
+			if ((_workloadRecorder == null) || !_finished.compareAndSet(false, true)) {
+				return;
+			}
+
+			_workloadRecorder._inFlight.decrementAndGet();
+
+			_workloadRecorder._record(this, System.nanoTime() - _startNanos, failed);
+		}
+
+		private final AtomicBoolean _finished = new AtomicBoolean();
+		private final int _inFlight;
+		private final List<Map<String, Object>> _parameters;
+		private final long _startNanos;
+		private final List<String> _statements;
+		private final long _threadId;
+		private final WorkloadRecordType _type;
+		private final WorkloadRecorder _workloadRecorder;
+
+	}
+
+	private void _append(ByteBuffer record) throws IOException {
+		if (record.remaining() > _byteBuffer.remaining()) {
+			_drain();
+		}
+
+		if (record.remaining() > _byteBuffer.capacity()) {
+			while (record.hasRemaining()) {
+				_fileChannel.write(record);
+			}
+
+			return;
+		}
+
+		_byteBuffer.put(record);
+	}
+
+	private void _close() {
+		_closed = true;
+
+		try {
+			_fileChannel.close();
+		}
+		catch (IOException ioe) {
+			_errorCount.incrementAndGet();
+		}
+	}
+
+	private void _drain() throws IOException {
+		_byteBuffer.flip();
+
+		try {
+			while (_byteBuffer.hasRemaining()) {
+				_fileChannel.write(_byteBuffer);
+			}
+		}
+		finally {
+			_byteBuffer.clear();
+		}
+	}
+
+	private void _encode(Capture capture, long durationNanos, boolean failed) {
+		WorkloadCodec.Encoder encoder = _encoder;
+
+		encoder.reset();
+
+		encoder.writeInt(0);
+
+		encoder.writeByte(capture._type.ordinal());
+		encoder.writeByte(failed ? 1 : 0);
+		encoder.writeVarLong(Math.max(0, capture._startNanos - _startNanos));
+		encoder.writeVarLong(durationNanos);
+		encoder.writeVarLong(capture._threadId);
+		encoder.writeVarInt(capture._inFlight);
+		encoder.writeVarInt(capture._statements.size());
+
+		for (int i = 0; i < capture._statements.size(); i++) {
+			Map<String, Object> parameters = capture._parameters.get(i);
+
+			if (parameters == null) {
+				parameters = Collections.emptyMap();
+			}
+
+			encoder.writeString(capture._statements.get(i));
+			encoder.writeMap(parameters);
+		}
+
+		encoder.setInt(0, encoder.getSize() - 4);
+	}
+
+	private void _record(Capture capture, long durationNanos, boolean failed) {
+		if (_closed) {
+			return;
+		}
+
+		_executorService.execute(() -> _write(capture, durationNanos, failed));
+	}
+
+	/**
+	 * Encodes a finished capture and appends it to the capture log, called on the writer thread only.
+	 */
+	private void _write(Capture capture, long durationNanos, boolean failed) {
+		synchronized (_byteBuffer) {
+			if (!_fileChannel.isOpen()) {
+				return;
+			}
+
+			try {
+				_encode(capture, durationNanos, failed);
+			}
+			catch (RuntimeException re) {
+				_errorCount.incrementAndGet();
+
+				return;
+			}
+
+			try {
+				_append(ByteBuffer.wrap(_encoder.getBytes(), 0, _encoder.getSize()));
+
+				_recordCount.incrementAndGet();
+			}
+			catch (IOException ioe) {
+				_errorCount.incrementAndGet();
+
+				_close();
+			}
+		}
+	}
+
+	private static final int _BUFFER_SIZE = 65536;
+
+	private static final long _CLOSE_TIMEOUT = 10000;
+
+	private static final int _QUEUE_CAPACITY = 8192;
+
+	private final ByteBuffer _byteBuffer = ByteBuffer.allocateDirect(_BUFFER_SIZE);
+	private volatile boolean _closed;
+	private final AtomicLong _droppedCount = new AtomicLong();
+	private final WorkloadCodec.Encoder _encoder = new WorkloadCodec.Encoder();
+	private final AtomicLong _errorCount = new AtomicLong();
+	private final ExecutorService _executorService;
+	private final FileChannel _fileChannel;
+	private final AtomicInteger _inFlight = new AtomicInteger();
+	private final Path _path;
+	private final AtomicLong _recordCount = new AtomicLong();
+	private final long _startNanos;
+
+}
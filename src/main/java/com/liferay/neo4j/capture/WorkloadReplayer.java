@@ -0,0 +1,395 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.capture;
+
+import org.neo4j.driver.v1.AuthTokens;
+import org.neo4j.driver.v1.Driver;
+import org.neo4j.driver.v1.GraphDatabase;
+import org.neo4j.driver.v1.Session;
+import org.neo4j.driver.v1.Statement;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a workload capture log written by {@link WorkloadRecorder} against a Neo4j server and reports the latency
+ * distribution of the replayed statements next to the captured one. Records are re-issued at their original start
+ * offsets divided by the speed factor, on a thread pool sized after the highest captured concurrency.
+ *
+ * The replayer can be run standalone:
+ *
+ * <pre>
+ * java -cp ... com.liferay.neo4j.capture.WorkloadReplayer &lt;capture log&gt; [--uri bolt://localhost:7687]
+ *     [--user neo4j] [--password neo4j] [--speed 1.0] [--threads 0] [--embedded &lt;database directory&gt;]
+ * </pre>
+ *
+ * A speed of 2 replays the workload twice as fast, a speed of 0 or less replays it as fast as possible. With the
+ * <code>--embedded</code> option an embedded Neo4j database listening for Bolt connections on the host and port of the
+ * URI is started for the replay, this requires the embedded engine and the Neo4j Bolt connector on the class path.
+ *
+ * @author Mate Thurzo
+ */
+public class WorkloadReplayer {
+
+	/**
+	 * Creates a <code>WorkloadReplayer</code> object.
+	 *
+	 * @param driver the driver the statements are replayed with
+	 * @param speed the factor the captured start offsets are divided by, 0 or less to replay without delays
+	 * @param threads the number of replaying threads, 0 or less to use the highest captured concurrency
+	 */
+	public WorkloadReplayer(Driver driver, double speed, int threads) {
+		_driver = driver;
+		_speed = speed;
+		_threads = threads;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) {
+			System.err.println(
+				"Usage: WorkloadReplayer <capture log> [--uri bolt://localhost:7687] [--user neo4j] " +
+					"[--password neo4j] [--speed 1.0] [--threads 0] [--embedded <database directory>]");
+
+			System.exit(1);
+		}
+
+		String uri = "bolt://localhost:7687";
+		String user = "neo4j";
+		String password = "neo4j";
+		double speed = 1.0;
+		int threads = 0;
+		String embeddedDatabasePath = null;
+
+		for (int i = 1; i < args.length; i += 2) {
+			if ((i + 1) >= args.length) {
+				throw new IllegalArgumentException("Missing value of " + args[i]);
+			}
+
+			String value = args[i + 1];
+
+			switch (args[i]) {
+				case "--uri":
+					uri = value;
+
+					break;
+				case "--user":
+					user = value;
+
+					break;
+				case "--password":
+					password = value;
+
+					break;
+				case "--speed":
+					speed = Double.parseDouble(value);
+
+					break;
+				case "--threads":
+					threads = Integer.parseInt(value);
+
+					break;
+				case "--embedded":
+					embeddedDatabasePath = value;
+
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+
+		List<WorkloadRecord> workloadRecords;
+
+		try (WorkloadReader workloadReader = new WorkloadReader(Paths.get(args[0]))) {
+			workloadRecords = workloadReader.readAll();
+		}
+
+		EmbeddedBoltServer embeddedBoltServer = null;
+
+		if (embeddedDatabasePath != null) {
+			if (!_isEmbeddedDatabaseAvailable()) {
+				System.err.println("The --embedded option requires the embedded Neo4j engine on the class path");
+
+				System.exit(1);
+			}
+
+			embeddedBoltServer = new EmbeddedBoltServer(embeddedDatabasePath, URI.create(uri));
+		}
+
+		try (Driver driver = GraphDatabase.driver(uri, AuthTokens.basic(user, password))) {
+			WorkloadReplayer workloadReplayer = new WorkloadReplayer(driver, speed, threads);
+
+			Report report = workloadReplayer.replay(workloadRecords);
+
+			report.print(System.out);
+		}
+		finally {
+			if (embeddedBoltServer != null) {
+				embeddedBoltServer.close();
+			}
+		}
+	}
+
+	/**
+	 * Replays the given records and waits until every replayed statement is finished.
+	 *
+	 * @param workloadRecords the records to replay, in any order
+	 * @return the captured and replayed latency distributions
+	 * @throws InterruptedException if the calling thread is interrupted while replaying
+	 */
+	public Report replay(List<WorkloadRecord> workloadRecords) throws InterruptedException {
+		List<WorkloadRecord> sortedWorkloadRecords = new ArrayList<>(workloadRecords);
+
+		sortedWorkloadRecords.sort(Comparator.comparingLong(WorkloadRecord::getStartOffset));
+
+		int threads = _threads;
+
+		if (threads <= 0) {
+			threads = Math.max(1, sortedWorkloadRecords.stream().mapToInt(WorkloadRecord::getInFlight).max().orElse(1));
+		}
+
+		Report report = new Report();
+
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+
+		long startNanos = System.nanoTime();
+
+		try {
+			for (WorkloadRecord workloadRecord : sortedWorkloadRecords) {
+				report._getCaptured(workloadRecord.getType()).add(workloadRecord.getDuration());
+
+				long intendedStartNanos = startNanos;
+
+				if (_speed > 0) {
+					intendedStartNanos += (long)(workloadRecord.getStartOffset() / _speed);
+
+					long delayNanos = intendedStartNanos - System.nanoTime();
+
+					if (delayNanos > 0) {
+						TimeUnit.NANOSECONDS.sleep(delayNanos);
+					}
+				}
+
+				long scheduledStartNanos = intendedStartNanos;
+
+				executorService.execute(() -> _replay(workloadRecord, scheduledStartNanos, report));
+			}
+		}
+		finally {
+			executorService.shutdown();
+		}
+
+		executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+		report._duration = System.nanoTime() - startNanos;
+
+		return report;
+	}
+
+	/**
+	 * Collects latencies and computes their percentiles.
+	 */
+	public static class LatencyDistribution {
+
+		public synchronized void add(long latency) {
+			if (_size == _latencies.length) {
+				_latencies = Arrays.copyOf(_latencies, _size * 2);
+			}
+
+			_latencies[_size++] = latency;
+
+			_sorted = false;
+		}
+
+		public synchronized int getCount() {
+			return _size;
+		}
+
+		public synchronized long getMax() {
+			return getPercentile(100);
+		}
+
+		/**
+		 * Returns the latency under which the given percentage of the latencies fall.
+		 *
+		 * @param percentile the percentage, between 0 and 100
+		 * @return the latency in nanoseconds, 0 if no latency was added
+		 */
+		public synchronized long getPercentile(double percentile) {
+			if (_size == 0) {
+				return 0;
+			}
+
+			if (!_sorted) {
+				Arrays.sort(_latencies, 0, _size);
+
+				_sorted = true;
+			}
+
+			int index = (int)Math.ceil(percentile / 100 * _size) - 1;
+
+			return _latencies[Math.min(_size - 1, Math.max(0, index))];
+		}
+
+		private long[] _latencies = new long[1024];
+		private int _size;
+		private boolean _sorted;
+
+	}
+
+	/**
+	 * The outcome of a replay.
+	 */
+	public static class Report {
+
+		public LatencyDistribution getCapturedLatencies(WorkloadRecordType type) {
+			return _getCaptured(type);
+		}
+
+		/**
+		 * Returns the time the replay took.
+		 *
+		 * @return the duration of the replay in nanoseconds
+		 */
+		public long getDuration() {
+			return _duration;
+		}
+
+		/**
+		 * Returns the number of replayed records which failed.
+		 *
+		 * @return the number of failed records
+		 */
+		public long getFailedCount() {
+			return _failedCount.get();
+		}
+
+		public LatencyDistribution getReplayedLatencies(WorkloadRecordType type) {
+			return _getReplayed(type);
+		}
+
+		/**
+		 * Prints the captured and replayed latency distributions of every record type, in milliseconds.
+		 *
+		 * @param printStream the stream to print the report to
+		 */
+		public void print(PrintStream printStream) {
+			printStream.printf("Replay took %.1f s, %d failed%n", _duration / 1e9, _failedCount.get());
+			printStream.printf(
+				"%-12s %-9s %8s %10s %10s %10s %10s %10s%n", "type", "source", "count", "p50 ms", "p90 ms", "p99 ms",
+				"p99.9 ms", "max ms");
+
+			for (WorkloadRecordType type : WorkloadRecordType.values()) {
+				_print(printStream, type, "captured", _getCaptured(type));
+				_print(printStream, type, "replayed", _getReplayed(type));
+			}
+		}
+
+		private synchronized LatencyDistribution _getCaptured(WorkloadRecordType type) {
+			return _captured.computeIfAbsent(type, (key) -> new LatencyDistribution());
+		}
+
+		private synchronized LatencyDistribution _getReplayed(WorkloadRecordType type) {
+			return _replayed.computeIfAbsent(type, (key) -> new LatencyDistribution());
+		}
+
+		private void _print(
+			PrintStream printStream, WorkloadRecordType type, String source, LatencyDistribution latencyDistribution) {
+
+			if (latencyDistribution.getCount() == 0) {
+				return;
+			}
+
+			printStream.printf(
+				"%-12s %-9s %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n", type, source, latencyDistribution.getCount(),
+				latencyDistribution.getPercentile(50) / 1e6, latencyDistribution.getPercentile(90) / 1e6,
+				latencyDistribution.getPercentile(99) / 1e6, latencyDistribution.getPercentile(99.9) / 1e6,
+				latencyDistribution.getMax() / 1e6);
+		}
+
+		private final Map<WorkloadRecordType, LatencyDistribution> _captured = new EnumMap<>(WorkloadRecordType.class);
+		private volatile long _duration;
+		private final AtomicLong _failedCount = new AtomicLong();
+		private final Map<WorkloadRecordType, LatencyDistribution> _replayed = new EnumMap<>(WorkloadRecordType.class);
+
+	}
+
+	/**
+	 * Replays a record. Its latency is measured from the time it was scheduled to start, so the time it waited for a
+	 * replaying thread counts, the same way a captured statement waited for the database under load.
+	 *
+	 * @param workloadRecord the record to replay
+	 * @param intendedStartNanos the time the record was scheduled to start, ignored when the workload is replayed as
+	 *                           fast as possible, in that case the latency is measured from the time the replay starts
+	 * @param report the report the latency is added to
+	 */
+	private void _replay(WorkloadRecord workloadRecord, long intendedStartNanos, Report report) {
+		long startNanos = intendedStartNanos;
+
+		if (_speed <= 0) {
+			startNanos = System.nanoTime();
+		}
+
+		try (Session session = _driver.session()) {
+			if (workloadRecord.getType() == WorkloadRecordType.WRITE_BATCH) {
+				session.writeTransaction(
+					(transaction) -> {
+						for (Statement statement : workloadRecord.getStatements()) {
+							transaction.run(statement).consume();
+						}
+
+						return null;
+					});
+			}
+			else {
+				for (Statement statement : workloadRecord.getStatements()) {
+					session.run(statement).consume();
+				}
+			}
+		}
+		catch (RuntimeException re) {
+			report._failedCount.incrementAndGet();
+		}
+
+		report._getReplayed(workloadRecord.getType()).add(System.nanoTime() - startNanos);
+	}
+
+	private static boolean _isEmbeddedDatabaseAvailable() {
+		try {
+			Class.forName(
+				"org.neo4j.graphdb.factory.GraphDatabaseFactory", false, WorkloadReplayer.class.getClassLoader());
+
+			return true;
+		}
+		catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private final Driver _driver;
+	private final double _speed;
+	private final int _threads;
+
+}
@@ -43,4 +43,91 @@ public @interface GraphDatabaseConfiguration {
 	@Meta.AD(deflt = "data/neo4j/default")
 	public String embeddedDatabasePath() default "data/neo4j/default";
 
+	@Meta.AD(deflt = "false", required = false)
+	public boolean embeddedExecutionEnabled() default false;
+
+	@Meta.AD(deflt = "false", required = false)
+	public boolean concurrencyLimitEnabled() default false;
+
+	@Meta.AD(deflt = "20", required = false)
+	public int concurrencyLimitInitial() default 20;
+
+	@Meta.AD(deflt = "1", required = false)
+	public int concurrencyLimitMin() default 1;
+
+	@Meta.AD(deflt = "50", required = false)
+	public int concurrencyLimitMax() default 50;
+
+	@Meta.AD(deflt = "100", required = false)
+	public long concurrencyLimitLatencyThreshold() default 100;
+
+	@Meta.AD(deflt = "0.9", required = false)
+	public double concurrencyLimitBackoffRatio() default 0.9;
+
+	@Meta.AD(deflt = "false", required = false)
+	public boolean concurrencyLimitFailFast() default false;
+
+	@Meta.AD(deflt = "1000", required = false)
+	public long concurrencyLimitQueueTimeout() default 1000;
+
+	@Meta.AD(
+		deflt = "0",
+		description = "The maximum number of concurrent statements per calling bundle, 0 disables bulkheads. The " +
+			"calling bundle is resolved from the thread context class loader, callers whose context class loader " +
+			"is not a bundle class loader, which is usually the case outside of portlet requests, share a single " +
+			"default bulkhead.",
+		required = false
+	)
+	public int concurrencyLimitBulkheadSize() default 0;
+
+	@Meta.AD(
+		deflt = "0",
+		description =
+			"Time in milliseconds the result of a streamed statement, run with runStatement, needs to be exhausted " +
+			"in before the statement is aborted, 0 for no deadline. Immediate statements, entity lookups and " +
+			"write-behind batches are not subject to this deadline, they are bounded by the transaction timeout of " +
+			"the database.",
+		required = false
+	)
+	public long statementTimeout() default 0;
+
+	@Meta.AD(deflt = "0", required = false)
+	public long resultHeapBudget() default 0;
+
+	@Meta.AD(deflt = "0", required = false)
+	public int resultMaxRecords() default 0;
+
+	@Meta.AD(deflt = "false", required = false)
+	public boolean entityCacheEnabled() default false;
+
+	@Meta.AD(deflt = "10000", required = false)
+	public int entityCacheSize() default 10000;
+
+	@Meta.AD(deflt = "false", required = false)
+	public boolean writeBehindEnabled() default false;
+
+	@Meta.AD(deflt = "10000", required = false)
+	public int writeBehindCapacity() default 10000;
+
+	@Meta.AD(deflt = "100", required = false)
+	public int writeBehindBatchSize() default 100;
+
+	@Meta.AD(deflt = "1000", required = false)
+	public long writeBehindFlushInterval() default 1000;
+
+	@Meta.AD(deflt = "CALLER_RUNS", optionValues = {"CALLER_RUNS", "DISCARD", "DISCARD_OLDEST"}, required = false)
+	public String writeBehindOverflowPolicy() default "CALLER_RUNS";
+
+	@Meta.AD(deflt = "0", required = false)
+	public double profileSampleRate() default 0;
+
+	@Meta.AD(deflt = "1000", required = false)
+	public int profileMaxStatements() default 1000;
+
+	@Meta.AD(deflt = "false", required = false)
+	public boolean workloadCaptureEnabled() default false;
+
+	@Meta.AD(deflt = "data/neo4j/capture", required = false)
+	public String workloadCaptureDirectory() default "data/neo4j/capture";
+
 }
@@ -0,0 +1,406 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.limiter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive concurrency limiter guarding the statements run through the {@link com.liferay.neo4j.GraphDatabase}
+ * service. The limit follows an AIMD (additive increase, multiplicative decrease) algorithm: every statement finishing
+ * under the latency threshold while the limiter is at least half utilized raises the limit by one, every statement
+ * exceeding the threshold or failing because the database is overloaded shrinks the limit by the backoff ratio. The
+ * limit shrinks at most once per overload: statements which were already running when the limit was decreased do not
+ * decrease it again, unless the latency threshold has passed since.
+ *
+ * Each calling bundle can additionally be confined to a fixed number of concurrent statements (bulkhead), so a single
+ * misbehaving plugin can not take every permit. Bulkheads are only as precise as the bulkhead names given by the
+ * caller, callers which cannot be told apart share a bulkhead. Callers over the limit either fail fast or wait in a
+ * queue until the queue timeout elapses, in both cases a {@link ConcurrencyLimitExceededException} is thrown when no
+ * permit is granted.
+ *
+ * A thread holding a permit, for example while it streams a result, would block on itself if it ran another statement
+ * over the limit. Permits marked with {@link Permit#hold()} are therefore reentrant: until they are released, every
+ * permit acquired by the thread holding them is granted without counting against the limit.
+ *
+ * @author Mate Thurzo
+ */
+public class ConcurrencyLimiter {
+
+	/**
+	 * Creates a <code>ConcurrencyLimiter</code> object.
+	 *
+	 * @param initialLimit the concurrency limit the limiter starts with
+	 * @param minLimit the lower bound of the concurrency limit
+	 * @param maxLimit the upper bound of the concurrency limit
+	 * @param latencyThreshold the statement latency in milliseconds above which the limit is decreased
+	 * @param backoffRatio the ratio the limit is multiplied by when the limit is decreased, between 0 and 1 exclusive
+	 * @param failFast <code>true</code> if callers over the limit are rejected immediately instead of being queued
+	 * @param queueTimeout the time in milliseconds a queued caller waits for a permit
+	 * @param bulkheadLimit the maximum number of concurrent statements per calling bundle, 0 disables bulkheads
+	 * @throws IllegalArgumentException if the backoff ratio is not between 0 and 1 exclusive
+	 */
+	public ConcurrencyLimiter(
+		int initialLimit, int minLimit, int maxLimit, long latencyThreshold, double backoffRatio, boolean failFast,
+		long queueTimeout, int bulkheadLimit) {
+
+		if (!(backoffRatio > 0) || !(backoffRatio < 1)) {
+			throw new IllegalArgumentException("Backoff ratio " + backoffRatio + " is not between 0 and 1");
+		}
+
+		_minLimit = Math.max(1, minLimit);
+		_maxLimit = Math.max(_minLimit, maxLimit);
+		_limit = Math.min(_maxLimit, Math.max(_minLimit, initialLimit));
+		_latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThreshold);
+		_backoffRatio = backoffRatio;
+		_failFast = failFast;
+		_queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+		_bulkheadLimit = bulkheadLimit;
+
+		_lock = new ReentrantLock();
+
+		_available = _lock.newCondition();
+
+		_lastDecreaseNanos = System.nanoTime();
+	}
+
+	/**
+	 * Acquires a permit to run a statement on behalf of the given bulkhead.
+	 *
+	 * @param bulkheadName the name of the bulkhead, usually the symbolic name of the calling bundle
+	 * @return a permit which must be released once the statement is finished
+	 * @throws ConcurrencyLimitExceededException if no permit could be acquired according to the configured policy
+	 */
+	public Permit acquire(String bulkheadName) {
+		if (!_heldPermits.isEmpty() && _heldPermits.containsKey(Thread.currentThread().getId())) {
+			return new Permit(null, null);
+		}
+
+		long deadlineNanos = System.nanoTime() + _queueTimeoutNanos;
+
+		Semaphore bulkhead = null;
+
+		if (_bulkheadLimit > 0) {
+			bulkhead = _bulkheads.computeIfAbsent(bulkheadName, (name) -> new Semaphore(_bulkheadLimit));
+
+			if (!_tryAcquire(bulkhead)) {
+				_rejectedCount.incrementAndGet();
+
+				throw new ConcurrencyLimitExceededException(
+					"Bulkhead limit of " + _bulkheadLimit + " concurrent statements reached for " + bulkheadName);
+			}
+		}
+
+		try {
+			_acquire(deadlineNanos);
+		}
+		catch (RuntimeException re) {
+			if (bulkhead != null) {
+				bulkhead.release();
+			}
+
+			throw re;
+		}
+
+		return new Permit(this, bulkhead);
+	}
+
+	/**
+	 * Returns the current concurrency limit.
+	 *
+	 * @return the number of statements allowed to run concurrently
+	 */
+	public int getLimit() {
+		return _limit;
+	}
+
+	/**
+	 * Returns the number of statements currently holding a permit.
+	 *
+	 * @return the number of in-flight statements
+	 */
+	public int getInFlight() {
+		return _inFlight;
+	}
+
+	/**
+	 * Returns the number of callers currently waiting for a permit, including the callers waiting for their bulkhead.
+	 *
+	 * @return the queue depth of the limiter
+	 */
+	public int getQueueDepth() {
+		return _queueDepth + _bulkheadQueueDepth.get();
+	}
+
+	/**
+	 * Returns the number of statements rejected since the limiter was created.
+	 *
+	 * @return the number of rejected statements
+	 */
+	public long getRejectedCount() {
+		return _rejectedCount.get();
+	}
+
+	/**
+	 * Returns the number of statements currently running on behalf of the given bulkhead.
+	 *
+	 * @param bulkheadName the name of the bulkhead
+	 * @return the number of in-flight statements of the bulkhead, 0 if bulkheads are disabled
+	 */
+	public int getBulkheadInFlight(String bulkheadName) {
+		Semaphore bulkhead = _bulkheads.get(bulkheadName);
+
+		if (bulkhead == null) {
+			return 0;
+		}
+
+		return _bulkheadLimit - bulkhead.availablePermits();
+	}
+
+	/**
+	 * Returns a snapshot of the in-flight statement count of every bulkhead seen so far.
+	 *
+	 * @return a map of bulkhead names and their in-flight statement count
+	 */
+	public Map<String, Integer> getBulkheadsInFlight() {
+		Map<String, Integer> bulkheadsInFlight = new ConcurrentHashMap<>();
+
+		_bulkheads.forEach(
+			(name, bulkhead) -> bulkheadsInFlight.put(name, _bulkheadLimit - bulkhead.availablePermits()));
+
+		return bulkheadsInFlight;
+	}
+
+	/**
+	 * Permit granted by the limiter. The latency sample fed back to the limiter is the time between acquiring the permit
+	 * and calling {@link #sample()}, or {@link #release()} if no sample was taken.
+	 */
+	public static class Permit {
+
+		/**
+		 * A permit not bound to any limiter, used when the concurrency limiter is disabled. Releasing it has no effect.
+		 */
+		public static final Permit UNLIMITED = new Permit(null, null);
+
+		/**
+		 * Marks the permit as held by the calling thread until it is released, see {@link ConcurrencyLimiter}. Used
+		 * when the permit is held while a result is streamed, so the thread can run other statements meanwhile.
+		 */
+		public void hold() {
+			if ((_concurrencyLimiter == null) || _released.get()) {
+				return;
+			}
+
+			_holderThreadId = Thread.currentThread().getId();
+
+			_concurrencyLimiter._heldPermits.putIfAbsent(_holderThreadId, this);
+
+			if (_released.get()) {
+				_concurrencyLimiter._heldPermits.remove(_holderThreadId, this);
+			}
+		}
+
+		/**
+		 * Records the statement latency without releasing the permit. Used when the permit is held while a result is
+		 * streamed, so the time the caller spends processing records does not count as database latency.
+		 */
+		public void sample() {
+			if (_latencyNanos < 0) {
+				_latencyNanos = System.nanoTime() - _acquiredNanos;
+			}
+		}
+
+		/**
+		 * Releases the permit and feeds the statement latency back to the limiter. Subsequent calls have no effect.
+		 */
+		public void release() {
+			sample();
+
+			_release(false);
+		}
+
+		/**
+		 * Releases the permit after a statement failed because the database is overloaded, which decreases the limit.
+		 * Statements failing for any other reason should be released with {@link #release()}. Subsequent calls have no
+		 * effect.
+		 */
+		public void drop() {
+			sample();
+
+			_release(true);
+		}
+
+		private Permit(ConcurrencyLimiter concurrencyLimiter, Semaphore bulkhead) {
+			_concurrencyLimiter = concurrencyLimiter;
+			_bulkhead = bulkhead;
+		}
+
+		private void _release(boolean dropped) {
+			if ((_concurrencyLimiter == null) || !_released.compareAndSet(false, true)) {
+				return;
+			}
+
+			if (_holderThreadId >= 0) {
+				_concurrencyLimiter._heldPermits.remove(_holderThreadId, this);
+			}
+
+			if (_bulkhead != null) {
+				_bulkhead.release();
+			}
+
+			_concurrencyLimiter._release(_acquiredNanos, _latencyNanos, dropped);
+		}
+
+		private final long _acquiredNanos = System.nanoTime();
+		private final Semaphore _bulkhead;
+		private final ConcurrencyLimiter _concurrencyLimiter;
+		private volatile long _holderThreadId = -1;
+		private volatile long _latencyNanos = -1;
+		private final AtomicBoolean _released = new AtomicBoolean();
+
+	}
+
+	private void _acquire(long deadlineNanos) {
+		_lock.lock();
+
+		try {
+			if (_inFlight < _limit) {
+				_inFlight++;
+
+				return;
+			}
+
+			if (_failFast) {
+				_rejectedCount.incrementAndGet();
+
+				throw new ConcurrencyLimitExceededException("Concurrency limit of " + _limit + " statements reached");
+			}
+
+			_queueDepth++;
+
+			try {
+				long remainingNanos = deadlineNanos - System.nanoTime();
+
+				while (_inFlight >= _limit) {
+					if (remainingNanos <= 0) {
+						_rejectedCount.incrementAndGet();
+
+						throw new ConcurrencyLimitExceededException(
+							"Timed out waiting for one of " + _limit + " concurrent statement permits");
+					}
+
+					remainingNanos = _available.awaitNanos(remainingNanos);
+				}
+
+				_inFlight++;
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+
+				throw new ConcurrencyLimitExceededException("Interrupted while waiting for a statement permit");
+			}
+			finally {
+				_queueDepth--;
+			}
+		}
+		finally {
+			_lock.unlock();
+		}
+	}
+
+	private void _release(long acquiredNanos, long latencyNanos, boolean dropped) {
+		_lock.lock();
+
+		try {
+			if (dropped || (latencyNanos > _latencyThresholdNanos)) {
+
+				// Statements running when the limit was decreased were admitted under the old limit, their failures
+				// belong to the overload which already decreased it
+
+				long nowNanos = System.nanoTime();
+
+				if (((acquiredNanos - _lastDecreaseNanos) >= 0) ||
+					((nowNanos - _lastDecreaseNanos) >= _latencyThresholdNanos)) {
+
+					_limit = Math.max(_minLimit, (int)(_limit * _backoffRatio));
+
+					_lastDecreaseNanos = nowNanos;
+				}
+			}
+			else if ((_inFlight * 2 >= _limit) && (_limit < _maxLimit)) {
+				_limit++;
+			}
+
+			_inFlight--;
+
+			for (int i = _inFlight; i < _limit; i++) {
+				_available.signal();
+			}
+		}
+		finally {
+			_lock.unlock();
+		}
+	}
+
+	private boolean _tryAcquire(Semaphore bulkhead) {
+		if (_failFast) {
+			return bulkhead.tryAcquire();
+		}
+
+		if (bulkhead.tryAcquire()) {
+			return true;
+		}
+
+		_bulkheadQueueDepth.incrementAndGet();
+
+		try {
+			return bulkhead.tryAcquire(_queueTimeoutNanos, TimeUnit.NANOSECONDS);
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+
+			return false;
+		}
+		finally {
+			_bulkheadQueueDepth.decrementAndGet();
+		}
+	}
+
+	private final Condition _available;
+	private final double _backoffRatio;
+	private final int _bulkheadLimit;
+	private final AtomicInteger _bulkheadQueueDepth = new AtomicInteger();
+	private final Map<String, Semaphore> _bulkheads = new ConcurrentHashMap<>();
+	private final boolean _failFast;
+	private final Map<Long, Permit> _heldPermits = new ConcurrentHashMap<>();
+	private volatile int _inFlight;
+	private long _lastDecreaseNanos;
+	private final long _latencyThresholdNanos;
+	private volatile int _limit;
+	private final ReentrantLock _lock;
+	private final int _maxLimit;
+	private final int _minLimit;
+	private volatile int _queueDepth;
+	private final long _queueTimeoutNanos;
+	private final AtomicLong _rejectedCount = new AtomicLong();
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.profile;
+
+/**
+ * Aggregated profile of the sampled executions of a normalized statement, collected by {@link QueryProfiler}. Objects
+ * of this class are snapshots, they do not change when further executions are collected.
+ *
+ * @author Mate Thurzo
+ */
+public class ProfileStatistics {
+
+	public ProfileStatistics(
+		String statement, long sampleCount, long totalDbHits, long maxDbHits, long totalRows, long totalTime,
+		String planner, String runtime) {
+
+		_statement = statement;
+		_sampleCount = sampleCount;
+		_totalDbHits = totalDbHits;
+		_maxDbHits = maxDbHits;
+		_totalRows = totalRows;
+		_totalTime = totalTime;
+		_planner = planner;
+		_runtime = runtime;
+	}
+
+	public double getAverageDbHits() {
+		if (_sampleCount == 0) {
+			return 0;
+		}
+
+		return (double)_totalDbHits / _sampleCount;
+	}
+
+	/**
+	 * Returns the highest number of database hits of a single sampled execution.
+	 *
+	 * @return the maximum number of database hits
+	 */
+	public long getMaxDbHits() {
+		return _maxDbHits;
+	}
+
+	/**
+	 * Returns the planner used for the last sampled execution, as reported in the arguments of the profiled plan.
+	 *
+	 * @return the planner, null if it was not reported
+	 */
+	public String getPlanner() {
+		return _planner;
+	}
+
+	/**
+	 * Returns the runtime used for the last sampled execution, as reported in the arguments of the profiled plan.
+	 *
+	 * @return the runtime, null if it was not reported
+	 */
+	public String getRuntime() {
+		return _runtime;
+	}
+
+	public long getSampleCount() {
+		return _sampleCount;
+	}
+
+	/**
+	 * Returns the normalized statement, which has its literals replaced with <code>?</code> and its whitespace
+	 * collapsed.
+	 *
+	 * @return the normalized statement
+	 */
+	public String getStatement() {
+		return _statement;
+	}
+
+	/**
+	 * Returns the number of database hits of every sampled execution, summed up over every operator of the plan.
+	 *
+	 * @return the total number of database hits
+	 */
+	public long getTotalDbHits() {
+		return _totalDbHits;
+	}
+
+	/**
+	 * Returns the number of rows produced by every sampled execution.
+	 *
+	 * @return the total number of rows
+	 */
+	public long getTotalRows() {
+		return _totalRows;
+	}
+
+	/**
+	 * Returns the time the server spent on every sampled execution, until the results were available and consumed.
+	 *
+	 * @return the total time in milliseconds
+	 */
+	public long getTotalTime() {
+		return _totalTime;
+	}
+
+	@Override
+	public String toString() {
+		return _statement + " {samples=" + _sampleCount + ", totalDbHits=" + _totalDbHits + ", maxDbHits=" +
+			_maxDbHits + ", totalRows=" + _totalRows + ", totalTime=" + _totalTime + ", planner=" + _planner +
+				", runtime=" + _runtime + "}";
+	}
+
+	private final long _maxDbHits;
+	private final String _planner;
+	private final String _runtime;
+	private final long _sampleCount;
+	private final String _statement;
+	private final long _totalDbHits;
+	private final long _totalRows;
+	private final long _totalTime;
+
+}
@@ -0,0 +1,456 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.profile;
+
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.summary.ProfiledPlan;
+import org.neo4j.driver.v1.summary.ResultSummary;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Samples statements to be run with <code>PROFILE</code> and aggregates their profiles per normalized statement. The
+ * normalized statement has its string and number literals replaced with <code>?</code>, its comments removed and its
+ * whitespace collapsed, so executions differing only in their literals are aggregated together.
+ *
+ * Profiles are aggregated into lock-free accumulators. The number of normalized statements tracked is bounded,
+ * profiles of new statements over the bound are dropped until {@link #reset()} is called.
+ *
+ * @author Mate Thurzo
+ */
+public class QueryProfiler {
+
+	/**
+	 * Creates a <code>QueryProfiler</code> object.
+	 *
+	 * @param sampleRate the ratio of statements to profile, between 0 and 1
+	 * @param maxStatements the maximum number of normalized statements to track
+	 */
+	public QueryProfiler(double sampleRate, int maxStatements) {
+		_sampleRate = sampleRate;
+		_maxStatements = Math.max(1, maxStatements);
+	}
+
+	/**
+	 * Returns the normalized form of a statement, which identifies the statement regardless of its literals.
+	 *
+	 * @param statement the Cypher statement
+	 * @return the statement with its literals replaced with <code>?</code>, its comments removed and its whitespace
+	 *         collapsed
+	 */
+	public static String fingerprint(String statement) {
+		StringBuilder sb = new StringBuilder(statement.length());
+
+		Deque<Character> brackets = new ArrayDeque<>();
+
+		int length = statement.length();
+
+		int i = 0;
+
+		while (i < length) {
+			char c = statement.charAt(i);
+
+			if ((c == '\'') || (c == '"')) {
+				i = _skipString(statement, i);
+
+				_appendLiteral(sb, brackets);
+			}
+			else if (c == '`') {
+				int end = statement.indexOf('`', i + 1);
+
+				if (end < 0) {
+					end = length - 1;
+				}
+
+				sb.append(statement, i, end + 1);
+
+				i = end + 1;
+			}
+			else if ((c == '/') && ((i + 1) < length) && (statement.charAt(i + 1) == '/')) {
+				i = statement.indexOf('\n', i);
+
+				if (i < 0) {
+					i = length;
+				}
+			}
+			else if ((c == '/') && ((i + 1) < length) && (statement.charAt(i + 1) == '*')) {
+				int end = statement.indexOf("*/", i + 2);
+
+				if (end < 0) {
+					i = length;
+				}
+				else {
+					i = end + 2;
+				}
+			}
+			else if (Character.isWhitespace(c)) {
+				if ((sb.length() > 0) && (sb.charAt(sb.length() - 1) != ' ')) {
+					sb.append(' ');
+				}
+
+				i++;
+			}
+			else if (Character.isDigit(c) && !_isIdentifierPart(sb)) {
+				while ((i < length) && _isNumberPart(statement, i)) {
+					i++;
+				}
+
+				_appendLiteral(sb, brackets);
+			}
+			else {
+				if ((c == '[') || (c == '(') || (c == '{')) {
+					brackets.push(c);
+				}
+				else if (((c == ']') || (c == ')') || (c == '}')) && !brackets.isEmpty()) {
+					brackets.pop();
+				}
+
+				sb.append(c);
+
+				i++;
+			}
+		}
+
+		sb.setLength(_skipSpaces(sb, sb.length()));
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the statement prefixed with <code>PROFILE</code>.
+	 *
+	 * @param statement the Cypher statement
+	 * @return the statement to run to profile the given statement
+	 */
+	public static String profile(String statement) {
+		return "PROFILE " + statement;
+	}
+
+	/**
+	 * Aggregates the profile of a statement execution. Summaries without a profile are ignored.
+	 *
+	 * @param statement the statement as it was passed in, without the <code>PROFILE</code> prefix
+	 * @param resultSummary the summary of the exhausted result
+	 */
+	public void collect(String statement, ResultSummary resultSummary) {
+		if (!resultSummary.hasProfile()) {
+			return;
+		}
+
+		String fingerprint = fingerprint(statement);
+
+		Accumulator accumulator = _accumulators.get(fingerprint);
+
+		if (accumulator == null) {
+			if (_accumulators.size() >= _maxStatements) {
+				_droppedCount.incrementAndGet();
+
+				return;
+			}
+
+			accumulator = _accumulators.computeIfAbsent(fingerprint, (key) -> new Accumulator());
+		}
+
+		ProfiledPlan profiledPlan = resultSummary.profile();
+
+		long dbHits = _sumDbHits(profiledPlan);
+
+		accumulator._sampleCount.increment();
+		accumulator._totalDbHits.add(dbHits);
+		accumulator._maxDbHits.accumulate(dbHits);
+		accumulator._totalRows.add(profiledPlan.records());
+		accumulator._totalTime.add(
+			resultSummary.resultAvailableAfter(TimeUnit.MILLISECONDS) +
+				resultSummary.resultConsumedAfter(TimeUnit.MILLISECONDS));
+
+		Map<String, Value> arguments = profiledPlan.arguments();
+
+		accumulator._planner = _getArgument(arguments, "planner");
+		accumulator._runtime = _getArgument(arguments, "runtime");
+	}
+
+	/**
+	 * Returns the number of profiles dropped because the maximum number of normalized statements was reached.
+	 *
+	 * @return the number of dropped profiles
+	 */
+	public long getDroppedCount() {
+		return _droppedCount.get();
+	}
+
+	/**
+	 * Returns the number of statements selected to be profiled.
+	 *
+	 * @return the number of sampled statements
+	 */
+	public long getSampledCount() {
+		return _sampledCount.get();
+	}
+
+	/**
+	 * Returns the profile statistics of every tracked normalized statement.
+	 *
+	 * @return the profile statistics in no particular order
+	 */
+	public List<ProfileStatistics> getStatistics() {
+		List<ProfileStatistics> profileStatistics = new ArrayList<>(_accumulators.size());
+
+		_accumulators.forEach(
+			(statement, accumulator) -> profileStatistics.add(accumulator.toProfileStatistics(statement)));
+
+		return profileStatistics;
+	}
+
+	/**
+	 * Returns the normalized statements with the highest total number of database hits.
+	 *
+	 * @param count the maximum number of statements to return
+	 * @return the profile statistics of the most expensive statements, the most expensive first
+	 */
+	public List<ProfileStatistics> getTopStatements(int count) {
+		return getStatistics().stream().sorted(
+			Comparator.comparingLong(ProfileStatistics::getTotalDbHits).reversed()
+		).limit(
+			count
+		).collect(
+			Collectors.toList()
+		);
+	}
+
+	/**
+	 * Removes every tracked statement and its profile statistics.
+	 */
+	public void reset() {
+		_accumulators.clear();
+	}
+
+	/**
+	 * Decides whether a statement is run with <code>PROFILE</code>. Statements already prefixed with
+	 * <code>PROFILE</code>, <code>EXPLAIN</code> or a <code>CYPHER</code> option, schema commands and periodic commit
+	 * statements are never profiled, even when they are preceded by comments.
+	 *
+	 * @param statement the Cypher statement
+	 * @return <code>true</code> if the statement is to be profiled
+	 */
+	public boolean sample(String statement) {
+		if ((_sampleRate <= 0) || ((_sampleRate < 1) && (ThreadLocalRandom.current().nextDouble() >= _sampleRate))) {
+			return false;
+		}
+
+		int start = _skipLeadingComments(statement);
+
+		String prefix = statement.substring(start, Math.min(statement.length(), start + 32));
+
+		prefix = prefix.toUpperCase(Locale.ENGLISH);
+
+		for (String unprofilablePrefix : _UNPROFILABLE_PREFIXES) {
+			if (prefix.startsWith(unprofilablePrefix)) {
+				return false;
+			}
+		}
+
+		_sampledCount.incrementAndGet();
+
+		return true;
+	}
+
+	private static void _appendLiteral(StringBuilder sb, Deque<Character> brackets) {
+
+		// Literal lists such as [1, 2, 3] are collapsed into [?], only while every element of the list is a literal
+
+		if (!brackets.isEmpty() && (brackets.peek() == '[')) {
+			int index = _skipSpaces(sb, sb.length());
+
+			if ((index > 0) && (sb.charAt(index - 1) == ',')) {
+				int literalEnd = _skipSpaces(sb, index - 1);
+
+				if ((literalEnd > 0) && (sb.charAt(literalEnd - 1) == '?')) {
+					int listStart = _skipSpaces(sb, literalEnd - 1);
+
+					if ((listStart > 0) && (sb.charAt(listStart - 1) == '[')) {
+						sb.setLength(literalEnd);
+
+						return;
+					}
+				}
+			}
+		}
+
+		sb.append('?');
+	}
+
+	private static String _getArgument(Map<String, Value> arguments, String key) {
+		Value value = arguments.get(key);
+
+		if ((value == null) || value.isNull()) {
+			return null;
+		}
+
+		return value.asString();
+	}
+
+	private static boolean _isIdentifierPart(StringBuilder sb) {
+		if (sb.length() == 0) {
+			return false;
+		}
+
+		char c = sb.charAt(sb.length() - 1);
+
+		if (Character.isLetterOrDigit(c) || (c == '_') || (c == '$')) {
+			return true;
+		}
+
+		return false;
+	}
+
+	private static boolean _isNumberPart(String statement, int index) {
+		char c = statement.charAt(index);
+
+		if (Character.isLetterOrDigit(c) || (c == '.')) {
+			return true;
+		}
+
+		if (((c == '-') || (c == '+')) && (index > 0)) {
+			char previous = statement.charAt(index - 1);
+
+			if ((previous == 'e') || (previous == 'E')) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the index of the first character of a statement which is neither whitespace nor part of a comment.
+	 */
+	private static int _skipLeadingComments(String statement) {
+		int length = statement.length();
+
+		int i = 0;
+
+		while (i < length) {
+			char c = statement.charAt(i);
+
+			if (Character.isWhitespace(c)) {
+				i++;
+			}
+			else if ((c == '/') && ((i + 1) < length) && (statement.charAt(i + 1) == '/')) {
+				i = statement.indexOf('\n', i);
+
+				if (i < 0) {
+					return length;
+				}
+			}
+			else if ((c == '/') && ((i + 1) < length) && (statement.charAt(i + 1) == '*')) {
+				int end = statement.indexOf("*/", i + 2);
+
+				if (end < 0) {
+					return length;
+				}
+
+				i = end + 2;
+			}
+			else {
+				return i;
+			}
+		}
+
+		return length;
+	}
+
+	private static int _skipSpaces(StringBuilder sb, int end) {
+		while ((end > 0) && (sb.charAt(end - 1) == ' ')) {
+			end--;
+		}
+
+		return end;
+	}
+
+	private static int _skipString(String statement, int start) {
+		char quote = statement.charAt(start);
+
+		int i = start + 1;
+
+		while (i < statement.length()) {
+			char c = statement.charAt(i);
+
+			if (c == '\\') {
+				i += 2;
+			}
+			else if (c == quote) {
+				return i + 1;
+			}
+			else {
+				i++;
+			}
+		}
+
+		return statement.length();
+	}
+
+	private static long _sumDbHits(ProfiledPlan profiledPlan) {
+		long dbHits = profiledPlan.dbHits();
+
+		for (ProfiledPlan child : profiledPlan.children()) {
+			dbHits += _sumDbHits(child);
+		}
+
+		return dbHits;
+	}
+
+	private static final String[] _UNPROFILABLE_PREFIXES = {
+		"CREATE CONSTRAINT", "CREATE INDEX", "CYPHER", "DROP CONSTRAINT", "DROP INDEX", "EXPLAIN", "PROFILE",
+		"USING PERIODIC COMMIT"
+	};
+
+	private final Map<String, Accumulator> _accumulators = new ConcurrentHashMap<>();
+	private final AtomicLong _droppedCount = new AtomicLong();
+	private final int _maxStatements;
+	private final AtomicLong _sampledCount = new AtomicLong();
+	private final double _sampleRate;
+
+	private static class Accumulator {
+
+		public ProfileStatistics toProfileStatistics(String statement) {
+			return new ProfileStatistics(
+				statement, _sampleCount.sum(), _totalDbHits.sum(), _maxDbHits.get(), _totalRows.sum(),
+				_totalTime.sum(), _planner, _runtime);
+		}
+
+		private final LongAccumulator _maxDbHits = new LongAccumulator(Math::max, 0);
+		private volatile String _planner;
+		private volatile String _runtime;
+		private final LongAdder _sampleCount = new LongAdder();
+		private final LongAdder _totalDbHits = new LongAdder();
+		private final LongAdder _totalRows = new LongAdder();
+		private final LongAdder _totalTime = new LongAdder();
+
+	}
+
+}
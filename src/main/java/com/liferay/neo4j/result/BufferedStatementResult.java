@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.result;
+
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.StatementResult;
+import org.neo4j.driver.v1.exceptions.NoSuchRecordException;
+import org.neo4j.driver.v1.summary.ResultSummary;
+import org.neo4j.driver.v1.util.Function;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves the records of a result set which were read by {@link GraphDatabaseResult#buffer(StatementResult)} before the
+ * session or transaction of the statement was closed. The records are held by a list returned by
+ * {@link SpilledRecordList#materialize(java.util.Iterator, List, HeapBudget, int, java.util.function.Consumer)}, so
+ * they may be partly spilled to disk.
+ *
+ * @author Mate Thurzo
+ */
+final class BufferedStatementResult implements StatementResult {
+
+	BufferedStatementResult(List<String> keys, List<Record> records, ResultSummary resultSummary) {
+		_keys = keys;
+		_records = records;
+		_resultSummary = resultSummary;
+	}
+
+	@Override
+	public List<String> keys() {
+		return _keys;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (_index < _records.size()) {
+			return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public Record next() {
+		if (!hasNext()) {
+			throw new NoSuchRecordException("No more records");
+		}
+
+		return _records.get(_index++);
+	}
+
+	@Override
+	public Record single() throws NoSuchRecordException {
+		if (!hasNext()) {
+			throw new NoSuchRecordException("Cannot retrieve a single record, because this result is empty.");
+		}
+
+		Record record = next();
+
+		if (hasNext()) {
+			consume();
+
+			throw new NoSuchRecordException(
+				"Expected a result with a single record, but this result contains at least one more.");
+		}
+
+		return record;
+	}
+
+	@Override
+	public Record peek() {
+		if (!hasNext()) {
+			throw new NoSuchRecordException("Cannot peek past the last record");
+		}
+
+		return _records.get(_index);
+	}
+
+	/**
+	 * Returns the remaining records. When no record has been read yet the buffered list itself is returned, which is
+	 * read-only if some of the records were spilled to disk.
+	 */
+	@Override
+	public List<Record> list() {
+		List<Record> records = _records;
+
+		if (_index > 0) {
+			records = new ArrayList<>(_records.subList(_index, _records.size()));
+		}
+
+		_index = _records.size();
+
+		return records;
+	}
+
+	@Override
+	public <T> List<T> list(Function<Record, T> mapFunction) {
+		List<T> list = new ArrayList<>();
+
+		while (hasNext()) {
+			list.add(mapFunction.apply(next()));
+		}
+
+		return list;
+	}
+
+	@Override
+	public ResultSummary consume() {
+		_index = _records.size();
+
+		return _resultSummary;
+	}
+
+	@Override
+	public ResultSummary summary() {
+		return _resultSummary;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	private int _index;
+	private final List<String> _keys;
+	private final List<Record> _records;
+	private final ResultSummary _resultSummary;
+
+}
@@ -0,0 +1,550 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.result;
+
+import org.neo4j.driver.internal.InternalNode;
+import org.neo4j.driver.internal.InternalPath;
+import org.neo4j.driver.internal.InternalRecord;
+import org.neo4j.driver.internal.InternalRelationship;
+import org.neo4j.driver.internal.summary.InternalProfiledPlan;
+import org.neo4j.driver.internal.summary.InternalSummaryCounters;
+import org.neo4j.driver.internal.summary.SummaryBuilder;
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Statement;
+import org.neo4j.driver.v1.StatementResult;
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.Values;
+import org.neo4j.driver.v1.exceptions.NoSuchRecordException;
+import org.neo4j.driver.v1.summary.ProfiledPlan;
+import org.neo4j.driver.v1.summary.ResultSummary;
+import org.neo4j.driver.v1.summary.StatementType;
+import org.neo4j.driver.v1.types.Entity;
+import org.neo4j.driver.v1.util.Function;
+import org.neo4j.graphdb.ExecutionPlanDescription;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.PropertyContainer;
+import org.neo4j.graphdb.QueryExecutionType;
+import org.neo4j.graphdb.QueryStatistics;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.TransactionTerminatedException;
+import org.neo4j.kernel.api.exceptions.Status;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts a {@link Result} of the embedded Neo4j engine to the driver's {@link StatementResult} API, so results of
+ * statements executed in-process can be wrapped in a {@link GraphDatabaseResult} the same way as Bolt results are.
+ * Nodes, relationships and paths are converted to their driver counterparts record by record.
+ *
+ * @author Mate Thurzo
+ */
+public class EmbeddedStatementResult implements StatementResult {
+
+	/**
+	 * Creates an <code>EmbeddedStatementResult</code> object wrapping the result of an embedded statement execution.
+	 *
+	 * @param statement the statement which produced the result
+	 * @param transaction the embedded transaction the statement runs in, it is committed once the result is consumed
+	 * @param result the result of the embedded execution
+	 * @param startNanos the {@link System#nanoTime()} value taken before the statement was executed
+	 */
+	public EmbeddedStatementResult(Statement statement, Transaction transaction, Result result, long startNanos) {
+		this(statement, transaction, result, startNanos, _CALLER_TRANSACTION_BINDER);
+	}
+
+	/**
+	 * Creates an <code>EmbeddedStatementResult</code> object wrapping the result of an embedded statement execution
+	 * whose transaction is not bound to the calling thread.
+	 *
+	 * @param statement the statement which produced the result
+	 * @param transaction the embedded transaction the statement runs in, it is committed once the result is consumed
+	 * @param result the result of the embedded execution
+	 * @param startNanos the {@link System#nanoTime()} value taken before the statement was executed
+	 * @param transactionBinder binds the transaction to the current thread around every access to the result
+	 */
+	public EmbeddedStatementResult(
+		Statement statement, Transaction transaction, Result result, long startNanos,
+		TransactionBinder transactionBinder) {
+
+		_statement = statement;
+		_transaction = transaction;
+		_result = result;
+		_startNanos = startNanos;
+		_transactionBinder = transactionBinder;
+
+		_keys = result.columns();
+		_resultAvailableAfter = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Pulls every remaining row of the embedded result into memory and commits its transaction. This is the in-process
+	 * equivalent of closing a Bolt session before the result is read. If reading a row fails the transaction is rolled
+	 * back and the failure is rethrown.
+	 */
+	public synchronized void buffer() {
+		_checkTerminated();
+
+		if (_closed) {
+			return;
+		}
+
+		Runnable unbinder = _transactionBinder.bind();
+
+		try {
+			while (_result.hasNext()) {
+				_buffer.add(_toRecord(_result.next()));
+			}
+
+			_close(true);
+		}
+		catch (RuntimeException re) {
+			throw _rollback(re);
+		}
+		finally {
+			unbinder.run();
+		}
+	}
+
+	/**
+	 * Rolls the transaction of the result back, unless it is already committed or rolled back.
+	 */
+	public synchronized void rollback() {
+		if (_closed) {
+			return;
+		}
+
+		Runnable unbinder = _transactionBinder.bind();
+
+		try {
+			_close(false);
+		}
+		finally {
+			unbinder.run();
+		}
+	}
+
+	/**
+	 * Terminates the embedded transaction of the result. Unlike the other methods this one can be called from any
+	 * thread, it is used to abort statements exceeding their deadline or results abandoned by their callers. A read in
+	 * progress fails with the termination, the transaction is then rolled back and closed right away unless it belongs
+	 * to the caller. Any later read fails with a {@link TransactionTerminatedException}.
+	 */
+	public void terminate() {
+		if (_closed) {
+			return;
+		}
+
+		_transaction.terminate();
+
+		synchronized (this) {
+			if (_closed) {
+				return;
+			}
+
+			_terminated = true;
+
+			if (_transactionBinder != _CALLER_TRANSACTION_BINDER) {
+				rollback();
+			}
+		}
+	}
+
+	@Override
+	public List<String> keys() {
+		return _keys;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return _fetch();
+	}
+
+	@Override
+	public Record next() {
+		if (!_fetch()) {
+			throw new NoSuchRecordException("No more records");
+		}
+
+		return _buffer.poll();
+	}
+
+	@Override
+	public Record single() throws NoSuchRecordException {
+		if (!_fetch()) {
+			throw new NoSuchRecordException("Cannot retrieve a single record, because this result is empty.");
+		}
+
+		Record record = _buffer.poll();
+
+		if (_fetch()) {
+			consume();
+
+			throw new NoSuchRecordException(
+				"Expected a result with a single record, but this result contains at least one more.");
+		}
+
+		return record;
+	}
+
+	@Override
+	public Record peek() {
+		if (!_fetch()) {
+			throw new NoSuchRecordException("Cannot peek past the last record");
+		}
+
+		return _buffer.peek();
+	}
+
+	@Override
+	public List<Record> list() {
+		return list((record) -> record);
+	}
+
+	@Override
+	public <T> List<T> list(Function<Record, T> mapFunction) {
+		List<T> list = new ArrayList<>();
+
+		while (_fetch()) {
+			list.add(mapFunction.apply(_buffer.poll()));
+		}
+
+		return list;
+	}
+
+	/**
+	 * Discards the remaining records and commits the transaction. The remaining rows are still pulled, so the statement
+	 * runs to completion the same way it does when a Bolt result is consumed: a write statement executes all its writes
+	 * and a profiled statement keeps its plan and statistics.
+	 */
+	@Override
+	public synchronized ResultSummary consume() {
+		_buffer.clear();
+
+		_checkTerminated();
+
+		if (!_closed) {
+			Runnable unbinder = _transactionBinder.bind();
+
+			try {
+				while (_result.hasNext()) {
+					_result.next();
+				}
+
+				_close(true);
+			}
+			catch (RuntimeException re) {
+				throw _rollback(re);
+			}
+			finally {
+				unbinder.run();
+			}
+		}
+
+		return summary();
+	}
+
+	/**
+	 * Buffers the remaining records, commits the transaction and returns the summary of the statement. Synchronized the
+	 * same way as the reads, since {@link #terminate()} may close the result from another thread.
+	 */
+	@Override
+	public synchronized ResultSummary summary() {
+		if (_summary != null) {
+			return _summary;
+		}
+
+		buffer();
+
+		SummaryBuilder summaryBuilder = new SummaryBuilder(_statement, null);
+
+		summaryBuilder.statementType(_toStatementType(_result.getQueryExecutionType()));
+		summaryBuilder.statementStatistics(_toSummaryCounters(_result.getQueryStatistics()));
+		summaryBuilder.resultAvailableAfter(_resultAvailableAfter);
+		summaryBuilder.resultConsumedAfter(_resultConsumedAfter);
+
+		if (_profiledPlan != null) {
+			summaryBuilder.profile(_profiledPlan);
+		}
+
+		_summary = summaryBuilder.build();
+
+		return _summary;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Binds the transaction of an embedded result to the current thread.
+	 */
+	@FunctionalInterface
+	public interface TransactionBinder {
+
+		/**
+		 * Binds the transaction to the current thread.
+		 *
+		 * @return the action restoring the previous binding of the current thread
+		 */
+		public Runnable bind();
+
+	}
+
+	private void _checkTerminated() {
+		if (_terminated) {
+			throw _rollback(new TransactionTerminatedException(Status.Transaction.Terminated));
+		}
+	}
+
+	private void _close(boolean commit) {
+		if (_closed) {
+			return;
+		}
+
+		_closed = true;
+
+		try {
+			if (commit) {
+				if (_result.getQueryExecutionType().isProfiled() && !_result.hasNext()) {
+					_profiledPlan = InternalProfiledPlan.PROFILED_PLAN_FROM_VALUE.apply(
+						_toProfiledPlanValue(_result.getExecutionPlanDescription()));
+				}
+
+				_result.close();
+
+				_transaction.success();
+			}
+			else {
+				_transaction.failure();
+
+				_result.close();
+			}
+		}
+		finally {
+			_transaction.close();
+		}
+
+		_resultConsumedAfter =
+			TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - _startNanos) - _resultAvailableAfter;
+	}
+
+	private synchronized boolean _fetch() {
+		if (!_buffer.isEmpty()) {
+			return true;
+		}
+
+		_checkTerminated();
+
+		if (_closed) {
+			return false;
+		}
+
+		Runnable unbinder = _transactionBinder.bind();
+
+		try {
+			if (_result.hasNext()) {
+				_buffer.add(_toRecord(_result.next()));
+
+				return true;
+			}
+
+			_close(true);
+
+			return false;
+		}
+		catch (RuntimeException re) {
+			throw _rollback(re);
+		}
+		finally {
+			unbinder.run();
+		}
+	}
+
+	private RuntimeException _rollback(RuntimeException runtimeException) {
+		try {
+			_close(false);
+		}
+		catch (RuntimeException re) {
+			runtimeException.addSuppressed(re);
+		}
+
+		return runtimeException;
+	}
+
+	private Object _toDriverObject(Object object) {
+		if (object instanceof Node) {
+			return _toInternalNode((Node)object);
+		}
+		else if (object instanceof Relationship) {
+			return _toInternalRelationship((Relationship)object);
+		}
+		else if (object instanceof Path) {
+			List<Entity> entities = new ArrayList<>();
+
+			for (PropertyContainer propertyContainer : (Path)object) {
+				entities.add((Entity)_toDriverObject(propertyContainer));
+			}
+
+			return new InternalPath(entities);
+		}
+		else if (object instanceof Map) {
+			Map<String, Object> map = new HashMap<>();
+
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>)object).entrySet()) {
+				map.put(String.valueOf(entry.getKey()), _toDriverObject(entry.getValue()));
+			}
+
+			return map;
+		}
+		else if (object instanceof Iterable) {
+			List<Object> list = new ArrayList<>();
+
+			for (Object element : (Iterable<?>)object) {
+				list.add(_toDriverObject(element));
+			}
+
+			return list;
+		}
+
+		return object;
+	}
+
+	private InternalNode _toInternalNode(Node node) {
+		List<String> labels = new ArrayList<>();
+
+		node.getLabels().forEach((label) -> labels.add(label.name()));
+
+		return new InternalNode(node.getId(), labels, _toValueMap(node.getAllProperties()));
+	}
+
+	private InternalRelationship _toInternalRelationship(Relationship relationship) {
+		return new InternalRelationship(
+			relationship.getId(), relationship.getStartNodeId(), relationship.getEndNodeId(),
+			relationship.getType().name(), _toValueMap(relationship.getAllProperties()));
+	}
+
+	private Value _toProfiledPlanValue(ExecutionPlanDescription executionPlanDescription) {
+		Map<String, Object> arguments = new HashMap<>();
+
+		for (Map.Entry<String, Object> entry : executionPlanDescription.getArguments().entrySet()) {
+			Object value = entry.getValue();
+
+			if ((value instanceof Boolean) || (value instanceof Number) || (value instanceof String)) {
+				arguments.put(entry.getKey(), value);
+			}
+			else {
+				arguments.put(entry.getKey(), String.valueOf(value));
+			}
+		}
+
+		List<Value> children = new ArrayList<>();
+
+		for (ExecutionPlanDescription child : executionPlanDescription.getChildren()) {
+			children.add(_toProfiledPlanValue(child));
+		}
+
+		Map<String, Object> profiledPlan = new HashMap<>();
+
+		profiledPlan.put("operatorType", executionPlanDescription.getName());
+		profiledPlan.put("args", arguments);
+		profiledPlan.put("identifiers", new ArrayList<>(executionPlanDescription.getIdentifiers()));
+		profiledPlan.put("children", children);
+
+		if (executionPlanDescription.hasProfilerStatistics()) {
+			ExecutionPlanDescription.ProfilerStatistics profilerStatistics =
+				executionPlanDescription.getProfilerStatistics();
+
+			profiledPlan.put("dbHits", profilerStatistics.getDbHits());
+			profiledPlan.put("rows", profilerStatistics.getRows());
+		}
+		else {
+			profiledPlan.put("dbHits", 0L);
+			profiledPlan.put("rows", 0L);
+		}
+
+		return Values.value(profiledPlan);
+	}
+
+	private Record _toRecord(Map<String, Object> row) {
+		Value[] values = new Value[_keys.size()];
+
+		for (int i = 0; i < values.length; i++) {
+			values[i] = Values.value(_toDriverObject(row.get(_keys.get(i))));
+		}
+
+		return new InternalRecord(_keys, values);
+	}
+
+	private StatementType _toStatementType(QueryExecutionType queryExecutionType) {
+		switch (queryExecutionType.queryType()) {
+			case READ_ONLY:
+				return StatementType.READ_ONLY;
+			case READ_WRITE:
+				return StatementType.READ_WRITE;
+			case WRITE:
+				return StatementType.WRITE_ONLY;
+			default:
+				return StatementType.SCHEMA_WRITE;
+		}
+	}
+
+	private InternalSummaryCounters _toSummaryCounters(QueryStatistics queryStatistics) {
+		return new InternalSummaryCounters(
+			queryStatistics.getNodesCreated(), queryStatistics.getNodesDeleted(),
+			queryStatistics.getRelationshipsCreated(), queryStatistics.getRelationshipsDeleted(),
+			queryStatistics.getPropertiesSet(), queryStatistics.getLabelsAdded(), queryStatistics.getLabelsRemoved(),
+			queryStatistics.getIndexesAdded(), queryStatistics.getIndexesRemoved(),
+			queryStatistics.getConstraintsAdded(), queryStatistics.getConstraintsRemoved());
+	}
+
+	private Map<String, Value> _toValueMap(Map<String, Object> properties) {
+		Map<String, Value> valueMap = new HashMap<>();
+
+		for (Map.Entry<String, Object> entry : properties.entrySet()) {
+			valueMap.put(entry.getKey(), Values.value(entry.getValue()));
+		}
+
+		return valueMap;
+	}
+
+	private static final Runnable _NO_OP = () -> {
+	};
+
+	private static final TransactionBinder _CALLER_TRANSACTION_BINDER = () -> _NO_OP;
+
+	private final LinkedList<Record> _buffer = new LinkedList<>();
+	private volatile boolean _closed;
+	private final List<String> _keys;
+	private ProfiledPlan _profiledPlan;
+	private final Result _result;
+	private final long _resultAvailableAfter;
+	private long _resultConsumedAfter;
+	private final long _startNanos;
+	private final Statement _statement;
+	private ResultSummary _summary;
+	private volatile boolean _terminated;
+	private final Transaction _transaction;
+	private final TransactionBinder _transactionBinder;
+
+}
@@ -19,6 +19,8 @@ import org.neo4j.driver.v1.Record;
 import org.neo4j.driver.v1.Session;
 import org.neo4j.driver.v1.StatementResult;
 import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.exceptions.ClientException;
+import org.neo4j.driver.v1.summary.ResultSummary;
 import org.neo4j.driver.v1.types.Entity;
 import org.neo4j.driver.v1.types.Node;
 import org.neo4j.driver.v1.types.Path;
@@ -27,6 +29,7 @@ import org.neo4j.driver.v1.util.Function;
 import org.neo4j.driver.v1.util.Pair;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -46,10 +49,17 @@ public class GraphDatabaseResult {
 	 * @param statementResult the result of a cypher statement run
 	 */
 	public GraphDatabaseResult(StatementResult statementResult) {
-		_resultUuid = UUID.randomUUID().toString();
 		_statementResult = statementResult;
 	}
 
+	/**
+	 * Creates a <code>GraphDatabaseResult</code> object whose statement is run later with {@link #run(Supplier)}.
+	 * Listeners added in the meantime receive the {@link GraphDatabaseResultEventType#STARTED} event before the
+	 * statement is executed, so the execution falls within the events of the result.
+	 */
+	public GraphDatabaseResult() {
+	}
+
 	/**
 	 * Returns a stream of <code>Record</code> objects. These records are the actual result of a previous statement run.
 	 *
@@ -58,13 +68,15 @@ public class GraphDatabaseResult {
 	public Stream<Record> recordStream() {
 		long estimate = 10L;
 
-		if (!_statementResult.hasNext()) {
+		if (!_hasNext()) {
 			estimate = 0L;
 		}
 
 		final Supplier<Record> recordSupplier = () -> {
-			if (_statementResult.hasNext()) {
-				return _statementResult.next();
+			Record record = _next();
+
+			if (record != null) {
+				return record;
 			}
 			else {
 				return _TERMINAL_RECORD;
@@ -94,6 +106,26 @@ public class GraphDatabaseResult {
 			false);
 	}
 
+	/**
+	 * Adds a listener receiving the lifecycle events of this result. The listener immediately receives a
+	 * {@link GraphDatabaseResultEventType#STARTED} event carrying the creation time of the result.
+	 *
+	 * @param listener the listener to add
+	 */
+	public void addListener(GraphDatabaseResultListener listener) {
+		_eventState._addListener(listener);
+	}
+
+	/**
+	 * Adds an event handler to run once the result is finished, after the exhaust handlers when the result set is
+	 * exhausted or after the fail handlers when retrieving it fails. Resources held by the result are released here.
+	 *
+	 * @param eventHandler a <code>GraphDatabaseResultEventHandler</code> to run when the result is finished
+	 */
+	public void onCloseResult(GraphDatabaseResultEventHandler eventHandler) {
+		_onCloseEventHandlers.add(eventHandler);
+	}
+
 	/**
 	 * Adds an event handler to run when the result set is exhausted.
 	 *
@@ -103,6 +135,27 @@ public class GraphDatabaseResult {
 		_onExhaustEventHandlers.add(eventHandler);
 	}
 
+	/**
+	 * Adds an event handler to run when retrieving the result set fails, or when {@link #list()} exceeds its maximum
+	 * number of records. The handler runs before the close handlers and should abandon the rest of the result set
+	 * without reading it. The exhaust handlers are not run in that case.
+	 *
+	 * @param eventHandler a <code>GraphDatabaseResultEventHandler</code> to run when retrieving the result set fails
+	 */
+	public void onFailResult(GraphDatabaseResultEventHandler eventHandler) {
+		_onFailEventHandlers.add(eventHandler);
+	}
+
+	/**
+	 * Adds an event handler to run once the database responded with the first record, or with the end of an empty
+	 * result set.
+	 *
+	 * @param eventHandler a <code>GraphDatabaseResultEventHandler</code> to run when the first result is retrieved
+	 */
+	public void onFirstResult(GraphDatabaseResultEventHandler eventHandler) {
+		_onFirstEventHandlers.add(eventHandler);
+	}
+
 	/**
 	 * Adds an event handler to run before retrieving the next result in the result set.
 	 *
@@ -113,13 +166,74 @@ public class GraphDatabaseResult {
 		_onBeforeNextEventHandlers.add(eventHandler);
 	}
 
+	/**
+	 * Reads every record of a statement result within the limits set by
+	 * {@link #setMaterializationLimits(HeapBudget, int)}, usually the result of an immediate statement before its
+	 * session or transaction is closed. The limits then bound the records while they are buffered, instead of only once
+	 * the driver or the embedded engine has buffered the whole result set on the heap. The records kept on the heap are
+	 * reserved until {@link #releaseList()} is called, and {@link #list()} returns the buffered records without
+	 * materializing them again.
+	 *
+	 * @param statementResult the result to buffer
+	 * @return a result serving the buffered records and the summary of the statement
+	 * @throws ResultSizeExceededException if the result set holds more records than the maximum, the caller has to
+	 *                                     discard the rest of the result set without reading it
+	 */
+	public StatementResult buffer(StatementResult statementResult) {
+		List<Record> records = SpilledRecordList.materialize(
+			statementResult, statementResult.keys(), _heapBudget, _maxRecords, this::_addReservation);
+
+		return new BufferedStatementResult(statementResult.keys(), records, statementResult.summary());
+	}
+
+	/**
+	 * Returns the handler aborting this result from another thread. The handler delivers the
+	 * {@link GraphDatabaseResultEventType#FAILED} and {@link GraphDatabaseResultEventType#CLOSED} events right away.
+	 * The next attempt to retrieve a record fails, and the fail and close handlers run on the thread reading the
+	 * result. The handler holds no reference to this result, so it also works for results which are no longer
+	 * reachable.
+	 *
+	 * @return the handler aborting this result
+	 */
+	public Runnable getAbortHandler() {
+		EventState eventState = _eventState;
+
+		return eventState::_abort;
+	}
+
+	/**
+	 * Returns the handler releasing the resources of this result from another thread once it has been aborted with the
+	 * handler returned by {@link #getAbortHandler()}. The handler runs the given action right away, unless a record is
+	 * being retrieved, in which case the thread retrieving it runs the action once the retrieval and the fail handlers
+	 * it triggered have returned. Retrieving records fails without touching the resources once the result is aborted,
+	 * so the action may close the session of the statement while the caller still holds the result. Like the abort
+	 * handler it holds no reference to this result.
+	 *
+	 * @return the handler receiving the action releasing the resources of the aborted result, the action must not throw
+	 *         exceptions
+	 */
+	public Consumer<Runnable> getReleaseHandler() {
+		EventState eventState = _eventState;
+
+		return eventState::_release;
+	}
+
+	/**
+	 * Returns the failure of the result, available to the fail handlers.
+	 *
+	 * @return the failure retrieving the result set, null if the result has not failed
+	 */
+	public RuntimeException getFailure() {
+		return _failure;
+	}
+
 	/**
 	 * Return the result's UUID.
 	 *
 	 * @return the result UUID
 	 */
 	public String getResultUuid() {
-		return _resultUuid;
+		return _eventState._resultUuid;
 	}
 
 	/**
@@ -132,32 +246,548 @@ public class GraphDatabaseResult {
 	}
 
 	/**
-	 * Returns the entire result stream. This wraps the {@link StatementResult#list()} method. This method is exhausting
-	 * the result set.
+	 * Finishes a result whose records have been buffered by the caller, usually the result of an immediate statement.
+	 * The exhaust and close handlers run and the {@link GraphDatabaseResultEventType#EXHAUSTED} and
+	 * {@link GraphDatabaseResultEventType#CLOSED} events are delivered, without a record count since the records have
+	 * not been read yet. The buffered records can still be read afterwards, no further events are delivered for them.
+	 */
+	public void finish() {
+		_processOnExhaustResult();
+	}
+
+	/**
+	 * Returns the entire result stream. This method is exhausting the result set.
+	 *
+	 * The records are materialized within the limits set by {@link #setMaterializationLimits(long, int)}, without
+	 * limits this wraps the {@link StatementResult#list()} method.
 	 *
 	 * @return the entire result stream
+	 * @throws ResultSizeExceededException if the result set holds more records than the maximum
 	 */
 	public List<Record> list() {
-		List<Record> records = _statementResult.list();
+		return list(_heapBudget, _maxRecords);
+	}
+
+	/**
+	 * Returns the entire result stream within the given limits, see {@link #list(HeapBudget, int)}. The heap budget only
+	 * applies to this call, other result sets materialized at the same time are not counted against it.
+	 *
+	 * @param heapBudget the estimated heap size in bytes the records may take before the rest is spilled to disk, 0 or
+	 *                   less to keep every record on the heap
+	 * @param maxRecords the maximum number of records, 0 or less for no maximum
+	 * @return the entire result stream
+	 * @throws ResultSizeExceededException if the result set holds more records than the maximum, the result fails in
+	 *                                     this case so the rest of the result set is discarded without being read
+	 */
+	public List<Record> list(long heapBudget, int maxRecords) {
+		if (heapBudget <= 0) {
+			return list((HeapBudget)null, maxRecords);
+		}
+
+		return list(new HeapBudget(heapBudget), maxRecords);
+	}
+
+	/**
+	 * Returns the entire result stream within the given limits. This method is exhausting the result set.
+	 *
+	 * Records are kept on the heap while the heap budget can hold their estimated size, the rest of the records are
+	 * spilled to a temporary memory mapped file. In that case the returned list is read-only and decodes the spilled
+	 * records from the file each time they are accessed. The records kept on the heap stay reserved from the budget
+	 * until {@link #releaseList()} is called or the returned list becomes unreachable, so a budget shared by several
+	 * results bounds them together. The records of a result buffered with {@link #buffer(StatementResult)} were already
+	 * read within the limits of the result, they are returned as they are.
+	 *
+	 * @param heapBudget the budget the records kept on the heap are reserved from, null to keep every record on the
+	 *                   heap
+	 * @param maxRecords the maximum number of records, 0 or less for no maximum
+	 * @return the entire result stream
+	 * @throws ResultSizeExceededException if the result set holds more records than the maximum, the result fails in
+	 *                                     this case so the rest of the result set is discarded without being read
+	 */
+	public List<Record> list(HeapBudget heapBudget, int maxRecords) {
+		if (_finished && (_statementResult instanceof BufferedStatementResult)) {
+
+			// The records were read within the limits of the result when they were buffered
+
+			return _statementResult.list();
+		}
+
+		if ((heapBudget == null) && (maxRecords <= 0)) {
+			List<Record> records;
+
+			if (_eventState._listeners == null) {
+				_eventState._beginRead();
+
+				try {
+					_checkAborted();
+
+					try {
+						records = _statementResult.list();
+					}
+					catch (RuntimeException re) {
+						throw _fail(re);
+					}
+
+					_processOnFirstResult();
+				}
+				finally {
+					_endRead();
+				}
+
+				_eventState._recordCount += records.size();
+			}
+			else {
+				records = new ArrayList<>();
+
+				Record record;
+
+				while ((record = _next()) != null) {
+					records.add(record);
+				}
+			}
+
+			_processOnExhaustResult();
+
+			return records;
+		}
+
+		List<Record> records;
+
+		try {
+			records = SpilledRecordList.materialize(
+				new Iterator<Record>() {
+
+					@Override
+					public boolean hasNext() {
+						return _hasNext();
+					}
+
+					@Override
+					public Record next() {
+						return _next();
+					}
+
+				},
+				_statementResult.keys(), heapBudget, maxRecords, this::_addReservation);
+		}
+		catch (RuntimeException re) {
+			throw _fail(re);
+		}
 
 		_processOnExhaustResult();
 
 		return records;
 	}
 
+	/**
+	 * Returns the heap reserved for the records kept on the heap by {@link #list()} to the heap budget right away,
+	 * instead of once the returned list becomes unreachable. The list remains usable, its records are just no longer
+	 * counted against the budget. Callers which are done with the list, or which keep it for long, should call this so
+	 * the results materialized after it are not spilled to disk.
+	 */
+	public void releaseList() {
+		List<HeapBudget.Reservation> reservations = _reservations;
+
+		_reservations = Collections.emptyList();
+
+		for (HeapBudget.Reservation reservation : reservations) {
+			reservation.release();
+		}
+	}
+
+	/**
+	 * Runs the statement of a result created without one. When running the statement fails the result fails as well,
+	 * delivering the {@link GraphDatabaseResultEventType#FAILED} and {@link GraphDatabaseResultEventType#CLOSED}
+	 * events, and the failure is rethrown.
+	 *
+	 * @param statementRunner runs the statement and returns its result
+	 * @return this result
+	 * @throws IllegalStateException if the statement of this result has already been run
+	 */
+	public GraphDatabaseResult run(Supplier<StatementResult> statementRunner) {
+		if (_statementResult != null) {
+			throw new IllegalStateException("The statement of result " + getResultUuid() + " has already been run");
+		}
+
+		try {
+			_statementResult = statementRunner.get();
+		}
+		catch (RuntimeException re) {
+			throw _fail(re);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Sets the limits {@link #list()} materializes the result set within.
+	 *
+	 * @param heapBudget the budget the records kept on the heap are reserved from, usually shared by every result of
+	 *                   the {@link GraphDatabase} service, null to keep every record on the heap
+	 * @param maxRecords the maximum number of records, 0 or less for no maximum
+	 */
+	public void setMaterializationLimits(HeapBudget heapBudget, int maxRecords) {
+		_heapBudget = heapBudget;
+		_maxRecords = maxRecords;
+	}
+
+	private static RuntimeException _newAbortException() {
+		return new ClientException(
+			_TRANSACTION_TIMED_OUT_CODE,
+			"The statement was aborted because its result was not exhausted within the statement timeout");
+	}
+
+	private void _addReservation(HeapBudget.Reservation reservation) {
+		if (_reservations.isEmpty()) {
+			_reservations = new ArrayList<>(1);
+		}
+
+		_reservations.add(reservation);
+	}
+
+	private void _checkAborted() {
+		if (!_finished && _eventState._aborted.get()) {
+			throw _fail(_newAbortException());
+		}
+	}
+
+	/**
+	 * Finishes the result after retrieving it failed. The fail and close handlers run between the
+	 * {@link GraphDatabaseResultEventType#FAILED} and {@link GraphDatabaseResultEventType#CLOSED} events, their own
+	 * failures are added to the original one as suppressed exceptions.
+	 *
+	 * @param runtimeException the failure of the result
+	 * @return the failure of the result
+	 */
+	private RuntimeException _fail(RuntimeException runtimeException) {
+		if (_finished) {
+			return runtimeException;
+		}
+
+		_failure = runtimeException;
+		_finished = true;
+
+		_fireEvent(GraphDatabaseResultEventType.FAILED, null, runtimeException);
+
+		_handle(_onFailEventHandlers, runtimeException);
+		_handle(_onCloseEventHandlers, runtimeException);
+
+		_fireEvent(GraphDatabaseResultEventType.CLOSED, null, null);
+
+		return runtimeException;
+	}
+
+	private void _fireEvent(GraphDatabaseResultEventType type, ResultSummary resultSummary, Throwable throwable) {
+		_eventState._fireEvent(type, resultSummary, throwable);
+	}
+
+	/**
+	 * Runs every handler even if some of them fail, so a failing handler cannot keep the others from releasing their
+	 * resources.
+	 *
+	 * @param eventHandlers the handlers to run
+	 * @param runtimeException the failure the failures of the handlers are added to, null if there is none yet
+	 * @return the first failure, with the later ones suppressed, null if there is none
+	 */
+	private RuntimeException _handle(
+		List<GraphDatabaseResultEventHandler> eventHandlers, RuntimeException runtimeException) {
+
+		for (GraphDatabaseResultEventHandler eventHandler : eventHandlers) {
+			try {
+				eventHandler.handle();
+			}
+			catch (RuntimeException re) {
+				if (runtimeException == null) {
+					runtimeException = re;
+				}
+				else {
+					runtimeException.addSuppressed(re);
+				}
+			}
+		}
+
+		return runtimeException;
+	}
+
+	/**
+	 * Runs the release action handed over by {@link #getReleaseHandler()} while a record was being retrieved.
+	 */
+	private void _endRead() {
+		Runnable releaseAction = _eventState._endRead();
+
+		if (releaseAction != null) {
+			releaseAction.run();
+		}
+	}
+
+	private boolean _hasNext() {
+		_eventState._beginRead();
+
+		try {
+			_checkAborted();
+
+			boolean hasNext;
+
+			try {
+				hasNext = _statementResult.hasNext();
+			}
+			catch (RuntimeException re) {
+				throw _fail(re);
+			}
+
+			_processOnFirstResult();
+
+			return hasNext;
+		}
+		finally {
+			_endRead();
+		}
+	}
+
+	/**
+	 * Retrieves the next record and delivers the record events to the listeners, if there are any.
+	 *
+	 * @return the next record, null if the result set is exhausted
+	 */
+	private Record _next() {
+		Record record;
+
+		_eventState._beginRead();
+
+		try {
+			_checkAborted();
+
+			try {
+				boolean hasNext = _statementResult.hasNext();
+
+				_processOnFirstResult();
+
+				if (!hasNext) {
+					return null;
+				}
+
+				record = _statementResult.next();
+			}
+			catch (RuntimeException re) {
+				throw _fail(re);
+			}
+		}
+		finally {
+			_endRead();
+		}
+
+		_eventState._recordCount++;
+
+		if (_eventState._listeners != null) {
+			_eventState._fireRecordEvents();
+		}
+
+		return record;
+	}
+
 	private void _processOnExhaustResult() {
-		_onExhaustEventHandlers.stream().forEach((eh) -> eh.handle());
+		if (_finished) {
+			return;
+		}
+
+		_finished = true;
+
+		if (_eventState._isOpen()) {
+			_fireEvent(GraphDatabaseResultEventType.EXHAUSTED, _statementResult.summary(), null);
+		}
+
+		RuntimeException runtimeException = _handle(_onExhaustEventHandlers, null);
+
+		runtimeException = _handle(_onCloseEventHandlers, runtimeException);
+
+		_fireEvent(GraphDatabaseResultEventType.CLOSED, null, null);
+
+		if (runtimeException != null) {
+			throw runtimeException;
+		}
+	}
+
+	private void _processOnFirstResult() {
+		if (_onFirstEventHandlers.isEmpty()) {
+			return;
+		}
+
+		List<GraphDatabaseResultEventHandler> eventHandlers = _onFirstEventHandlers;
+
+		_onFirstEventHandlers = Collections.emptyList();
+
+		RuntimeException runtimeException = _handle(eventHandlers, null);
+
+		if (runtimeException != null) {
+			throw runtimeException;
+		}
 	}
 
 	private void _processOnBeforeNextResult() {
-		_onBeforeNextEventHandlers.stream().forEach((eh) -> eh.handle());
+		if (_onBeforeNextEventHandlers.isEmpty()) {
+			return;
+		}
+
+		for (GraphDatabaseResultEventHandler eventHandler : _onBeforeNextEventHandlers) {
+			eventHandler.handle();
+		}
 	}
 
+	private final EventState _eventState = new EventState();
+	private RuntimeException _failure;
+	private boolean _finished;
+	private HeapBudget _heapBudget;
+	private int _maxRecords;
 	private List<GraphDatabaseResultEventHandler> _onBeforeNextEventHandlers = new ArrayList<>();
+	private List<GraphDatabaseResultEventHandler> _onCloseEventHandlers = new ArrayList<>();
 	private List<GraphDatabaseResultEventHandler> _onExhaustEventHandlers = new ArrayList<>();
-	private String _resultUuid;
+	private List<GraphDatabaseResultEventHandler> _onFailEventHandlers = new ArrayList<>();
+	private List<GraphDatabaseResultEventHandler> _onFirstEventHandlers = new ArrayList<>();
+	private List<HeapBudget.Reservation> _reservations = Collections.emptyList();
 	private StatementResult _statementResult;
 	private static Record _TERMINAL_RECORD = new TerminalRecord();
+	private static final String _TRANSACTION_TIMED_OUT_CODE = "Neo.ClientError.Transaction.TransactionTimedOut";
+
+	/**
+	 * Holds what the lifecycle events of a result are built from. The abort and release handlers only reference this
+	 * object, so they can deliver the events of an aborted result without keeping the result reachable. Events are
+	 * delivered under the lock of this object, so an abort cannot interleave with the events delivered by the thread
+	 * reading the result, and nothing is delivered after {@link GraphDatabaseResultEventType#CLOSED}.
+	 */
+	private static final class EventState {
+
+		private EventState() {
+			_resultUuid = UUID.randomUUID().toString();
+
+			_startNanos = System.nanoTime();
+			_startTime = System.currentTimeMillis();
+		}
+
+		private void _abort() {
+			if (!_aborted.compareAndSet(false, true)) {
+				return;
+			}
+
+			_fireEvent(GraphDatabaseResultEventType.FAILED, null, _newAbortException());
+			_fireEvent(GraphDatabaseResultEventType.CLOSED, null, null);
+		}
+
+		private synchronized void _addListener(GraphDatabaseResultListener listener) {
+			if (_listeners == null) {
+				_listeners = new GraphDatabaseResultListener[] {listener};
+			}
+			else {
+				GraphDatabaseResultListener[] listeners = Arrays.copyOf(_listeners, _listeners.length + 1);
+
+				listeners[listeners.length - 1] = listener;
+
+				_listeners = listeners;
+			}
+
+			listener.onEvent(
+				new GraphDatabaseResultEvent(
+					GraphDatabaseResultEventType.STARTED, _resultUuid, _recordCount, _startTime, 0, null, null));
+		}
+
+		private synchronized void _beginRead() {
+			_reading = true;
+		}
+
+		private synchronized Runnable _endRead() {
+			Runnable releaseAction = _releaseAction;
+
+			_reading = false;
+			_releaseAction = null;
+
+			return releaseAction;
+		}
+
+		private synchronized void _fireEvent(
+			GraphDatabaseResultEventType type, ResultSummary resultSummary, Throwable throwable) {
+
+			if ((_listeners == null) || _closed) {
+				return;
+			}
+
+			GraphDatabaseResultEvent event = new GraphDatabaseResultEvent(
+				type, _resultUuid, _recordCount, _startTime, System.nanoTime() - _startNanos, resultSummary,
+				throwable);
+
+			for (GraphDatabaseResultListener listener : _listeners) {
+				listener.onEvent(event);
+			}
+
+			if (type == GraphDatabaseResultEventType.FAILED) {
+				_failed = true;
+			}
+			else if (type == GraphDatabaseResultEventType.CLOSED) {
+				_closed = true;
+			}
+		}
+
+		private synchronized void _fireRecordEvents() {
+			if (_closed) {
+				return;
+			}
+
+			if (_recordCount == 1) {
+				_fireEvent(GraphDatabaseResultEventType.FIRST_RECORD, null, null);
+			}
+
+			GraphDatabaseResultEvent event = null;
+
+			for (GraphDatabaseResultListener listener : _listeners) {
+				int recordInterval = listener.getRecordInterval();
+
+				if ((recordInterval > 0) && ((_recordCount % recordInterval) == 0)) {
+					if (event == null) {
+						event = new GraphDatabaseResultEvent(
+							GraphDatabaseResultEventType.RECORDS, _resultUuid, _recordCount, _startTime,
+							System.nanoTime() - _startNanos, null, null);
+					}
+
+					listener.onEvent(event);
+				}
+			}
+		}
+
+		private synchronized boolean _isOpen() {
+			if ((_listeners != null) && !_closed && !_failed) {
+				return true;
+			}
+
+			return false;
+		}
+
+		/**
+		 * Runs the release action unless a record is being retrieved. The abort flag is set before the release action
+		 * is handed over, and a retrieval checks it only after it is marked as in progress, so a retrieval starting
+		 * after the action ran fails before it touches the released resources.
+		 */
+		private void _release(Runnable releaseAction) {
+			synchronized (this) {
+				if (_reading) {
+					_releaseAction = releaseAction;
+
+					return;
+				}
+			}
+
+			releaseAction.run();
+		}
+
+		private final AtomicBoolean _aborted = new AtomicBoolean();
+		private boolean _closed;
+		private boolean _failed;
+		private volatile GraphDatabaseResultListener[] _listeners;
+		private boolean _reading;
+		private long _recordCount;
+		private Runnable _releaseAction;
+		private final String _resultUuid;
+		private final long _startNanos;
+		private final long _startTime;
+
+	}
 
 	private static final class TerminalRecord implements Record {
 
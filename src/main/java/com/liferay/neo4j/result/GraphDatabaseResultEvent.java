@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.result;
+
+import org.neo4j.driver.v1.summary.ResultSummary;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A lifecycle event of a {@link GraphDatabaseResult}.
+ *
+ * @author Mate Thurzo
+ */
+public class GraphDatabaseResultEvent {
+
+	public GraphDatabaseResultEvent(
+		GraphDatabaseResultEventType type, String resultUuid, long recordCount, long startTime, long elapsedTime,
+		ResultSummary resultSummary, Throwable throwable) {
+
+		_type = type;
+		_resultUuid = resultUuid;
+		_recordCount = recordCount;
+		_startTime = startTime;
+		_elapsedTime = elapsedTime;
+		_resultSummary = resultSummary;
+		_throwable = throwable;
+	}
+
+	/**
+	 * Returns the time elapsed between the creation of the result and this event.
+	 *
+	 * @return the elapsed time in nanoseconds
+	 */
+	public long getElapsedTime() {
+		return _elapsedTime;
+	}
+
+	/**
+	 * Returns the number of records retrieved from the result when this event occurred.
+	 *
+	 * @return the number of retrieved records
+	 */
+	public long getRecordCount() {
+		return _recordCount;
+	}
+
+	public String getResultUuid() {
+		return _resultUuid;
+	}
+
+	/**
+	 * Returns the summary of the result.
+	 *
+	 * @return the summary, null unless this is an {@link GraphDatabaseResultEventType#EXHAUSTED} event
+	 */
+	public ResultSummary getResultSummary() {
+		return _resultSummary;
+	}
+
+	/**
+	 * Returns the time the result was created at.
+	 *
+	 * @return the creation time of the result in epoch milliseconds
+	 */
+	public long getStartTime() {
+		return _startTime;
+	}
+
+	/**
+	 * Returns the cause of the failure.
+	 *
+	 * @return the cause, null unless this is a {@link GraphDatabaseResultEventType#FAILED} event
+	 */
+	public Throwable getThrowable() {
+		return _throwable;
+	}
+
+	/**
+	 * Returns the time this event occurred at.
+	 *
+	 * @return the time of the event in epoch milliseconds
+	 */
+	public long getTime() {
+		return _startTime + TimeUnit.NANOSECONDS.toMillis(_elapsedTime);
+	}
+
+	public GraphDatabaseResultEventType getType() {
+		return _type;
+	}
+
+	private final long _elapsedTime;
+	private final long _recordCount;
+	private final String _resultUuid;
+	private final ResultSummary _resultSummary;
+	private final long _startTime;
+	private final Throwable _throwable;
+	private final GraphDatabaseResultEventType _type;
+
+}
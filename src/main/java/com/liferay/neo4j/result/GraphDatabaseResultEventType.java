@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.result;
+
+/**
+ * The lifecycle events of a {@link GraphDatabaseResult} delivered to {@link GraphDatabaseResultListener} objects.
+ *
+ * @author Mate Thurzo
+ */
+public enum GraphDatabaseResultEventType {
+
+	/**
+	 * The result was created. Delivered when the listener is added, with the time of the creation of the result. The
+	 * results of immediate statements are created before their statement is executed, so the execution time is part of
+	 * their events, streamed results are created once their statement has been sent to the database.
+	 */
+	STARTED,
+
+	/**
+	 * The first record was retrieved.
+	 */
+	FIRST_RECORD,
+
+	/**
+	 * Another batch of records was retrieved, delivered every {@link GraphDatabaseResultListener#getRecordInterval()}
+	 * records.
+	 */
+	RECORDS,
+
+	/**
+	 * The result set is exhausted, the event carries the summary of the result. Results of immediate statements are
+	 * finished as soon as their records are buffered, their event carries no record count.
+	 */
+	EXHAUSTED,
+
+	/**
+	 * Retrieving the records failed, the event carries the cause of the failure.
+	 */
+	FAILED,
+
+	/**
+	 * The result is finished and its resources are released, always delivered after {@link #EXHAUSTED} or
+	 * {@link #FAILED}.
+	 */
+	CLOSED
+
+}
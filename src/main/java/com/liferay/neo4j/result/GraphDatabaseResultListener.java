@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.result;
+
+/**
+ * Receives the lifecycle events of {@link GraphDatabaseResult} objects, for example to build tracing spans or metrics
+ * around statement executions. Listeners can be added to a single result or to the
+ * {@link com.liferay.neo4j.GraphDatabase} service, either directly or by registering them as OSGi services, in which
+ * case they receive the events of every result created by the service.
+ *
+ * Results without listeners do not create events, and {@link GraphDatabaseResultEventType#RECORDS} events are only
+ * created for listeners asking for them with {@link #getRecordInterval()}.
+ *
+ * Listeners must be thread-safe. Events are usually delivered on the thread retrieving the records, but a result which
+ * is aborted because its deadline expired, or which is abandoned before being exhausted, receives its
+ * {@link GraphDatabaseResultEventType#FAILED} and {@link GraphDatabaseResultEventType#CLOSED} events on the statement
+ * reaper thread. The events of a single result never overlap and nothing is delivered after
+ * {@link GraphDatabaseResultEventType#CLOSED}, but a listener added to the service receives the events of many results
+ * from many threads at the same time.
+ *
+ * @author Mate Thurzo
+ */
+@FunctionalInterface
+public interface GraphDatabaseResultListener {
+
+	/**
+	 * Returns the number of records between two {@link GraphDatabaseResultEventType#RECORDS} events.
+	 *
+	 * @return the number of records, 0 or less to receive no {@link GraphDatabaseResultEventType#RECORDS} events
+	 */
+	public default int getRecordInterval() {
+		return 0;
+	}
+
+	/**
+	 * Called when an event of the result occurs, on the thread retrieving the records or on the statement reaper
+	 * thread. Listeners should return quickly, since the thread delivering the event is blocked meanwhile.
+	 *
+	 * @param event the event
+	 */
+	public void onEvent(GraphDatabaseResultEvent event);
+
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.result;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estimated number of heap bytes the materialized result sets may take together. Result sets reserve the size of the
+ * records they keep on the heap, a reservation is held until it is released with
+ * {@link GraphDatabaseResult#releaseList()} or the list holding the records becomes unreachable, so the budget covers
+ * every materialized list still in use rather than a single call.
+ *
+ * @author Mate Thurzo
+ */
+public class HeapBudget {
+
+	/**
+	 * Creates a <code>HeapBudget</code> object.
+	 *
+	 * @param capacity the estimated heap size in bytes the materialized result sets may take together
+	 */
+	public HeapBudget(long capacity) {
+		_capacity = capacity;
+	}
+
+	/**
+	 * Returns the estimated heap size the materialized result sets may take together.
+	 *
+	 * @return the capacity of the budget in bytes
+	 */
+	public long getCapacity() {
+		return _capacity;
+	}
+
+	/**
+	 * Returns the estimated heap size currently reserved by materialized result sets. Reservations which were not
+	 * released explicitly are returned once the garbage collector has cleared the lists holding them.
+	 *
+	 * @return the reserved bytes
+	 */
+	public long getReserved() {
+		_reclaim();
+
+		return _reserved.get();
+	}
+
+	/**
+	 * Returns bytes reserved by {@link #tryReserve(long)} which are not held by any list.
+	 *
+	 * @param size the number of bytes to return
+	 */
+	void release(long size) {
+		_reserved.addAndGet(-size);
+	}
+
+	/**
+	 * Returns the bytes held by a reservation. Subsequent calls, and the list becoming unreachable afterwards, have no
+	 * effect.
+	 *
+	 * @param reservation the reservation to return
+	 */
+	void release(Reservation reservation) {
+		if (_reservations.remove(reservation)) {
+			reservation.clear();
+
+			release(reservation._size);
+		}
+	}
+
+	/**
+	 * Holds reserved bytes until the reservation is released or the given list becomes unreachable.
+	 *
+	 * @param list the list holding the records the bytes were reserved for
+	 * @param size the number of bytes reserved for the records
+	 * @return the reservation holding the bytes
+	 */
+	Reservation track(Object list, long size) {
+		Reservation reservation = new Reservation(this, list, size);
+
+		_reservations.add(reservation);
+
+		return reservation;
+	}
+
+	/**
+	 * Reserves heap for a record if the budget allows it.
+	 *
+	 * @param size the estimated heap size of the record in bytes
+	 * @return <code>true</code> if the bytes were reserved, <code>false</code> if the record does not fit
+	 */
+	boolean tryReserve(long size) {
+		_reclaim();
+
+		while (true) {
+			long reserved = _reserved.get();
+
+			if ((reserved + size) > _capacity) {
+				return false;
+			}
+
+			if (_reserved.compareAndSet(reserved, reserved + size)) {
+				return true;
+			}
+		}
+	}
+
+	private void _reclaim() {
+		Reference<?> reference;
+
+		while ((reference = _referenceQueue.poll()) != null) {
+			release((Reservation)reference);
+		}
+	}
+
+	private final long _capacity;
+	private final ReferenceQueue<Object> _referenceQueue = new ReferenceQueue<>();
+	private final Set<Reservation> _reservations = Collections.newSetFromMap(new ConcurrentHashMap<>());
+	private final AtomicLong _reserved = new AtomicLong();
+
+	/**
+	 * Bytes reserved for the records of a single list.
+	 */
+	static final class Reservation extends PhantomReference<Object> {
+
+		/**
+		 * Returns the reserved bytes to the budget, see {@link HeapBudget#release(Reservation)}.
+		 */
+		void release() {
+			_heapBudget.release(this);
+		}
+
+		private Reservation(HeapBudget heapBudget, Object list, long size) {
+			super(list, heapBudget._referenceQueue);
+
+			_heapBudget = heapBudget;
+			_size = size;
+		}
+
+		private final HeapBudget _heapBudget;
+		private final long _size;
+
+	}
+
+}
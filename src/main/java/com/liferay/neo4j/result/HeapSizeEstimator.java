@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.result;
+
+import org.neo4j.driver.internal.value.InternalValue;
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.types.Entity;
+import org.neo4j.driver.v1.types.Node;
+import org.neo4j.driver.v1.types.Path;
+import org.neo4j.driver.v1.types.Relationship;
+
+/**
+ * Estimates the number of bytes driver records, values and entities take on the heap. The estimates are meant for
+ * enforcing memory budgets, they are not exact.
+ *
+ * @author Mate Thurzo
+ */
+public final class HeapSizeEstimator {
+
+	/**
+	 * Returns the approximate number of bytes a node or relationship takes on the heap, including its properties and
+	 * its labels or type.
+	 *
+	 * @param entity the node or relationship
+	 * @return the estimated heap size of the entity in bytes
+	 */
+	public static long estimateSize(Entity entity) {
+		if (entity instanceof Node) {
+			long size = 32 + _estimateEntitySize(entity);
+
+			for (String label : ((Node)entity).labels()) {
+				size += 8 + _estimateStringSize(label);
+			}
+
+			return size;
+		}
+
+		if (entity instanceof Relationship) {
+			return 48 + _estimateEntitySize(entity) + _estimateStringSize(((Relationship)entity).type());
+		}
+
+		return _estimateEntitySize(entity);
+	}
+
+	/**
+	 * Returns the approximate number of bytes a record takes on the heap.
+	 *
+	 * @param record the record
+	 * @return the estimated heap size of the record in bytes
+	 */
+	public static long estimateSize(Record record) {
+		long size = 32 + (8L * record.size());
+
+		for (Value value : record.values()) {
+			size += estimateSize(value);
+		}
+
+		return size;
+	}
+
+	/**
+	 * Returns the approximate number of bytes a value takes on the heap.
+	 *
+	 * @param value the value
+	 * @return the estimated heap size of the value in bytes
+	 */
+	public static long estimateSize(Value value) {
+		switch (((InternalValue)value).typeConstructor()) {
+			case INTEGER_TyCon:
+			case FLOAT_TyCon:
+				return 24;
+			case STRING_TyCon:
+				return _estimateStringSize(value.asString());
+			case BYTES_TyCon:
+				return 32 + value.size();
+			case LIST_TyCon:
+				long listSize = 32;
+
+				for (Value element : value.values()) {
+					listSize += 8 + estimateSize(element);
+				}
+
+				return listSize;
+			case MAP_TyCon:
+				long mapSize = 64;
+
+				for (String key : value.keys()) {
+					mapSize += 48 + _estimateStringSize(key) + estimateSize(value.get(key));
+				}
+
+				return mapSize;
+			case NODE_TyCon:
+				return estimateSize(value.asNode());
+			case RELATIONSHIP_TyCon:
+				return estimateSize(value.asRelationship());
+			case PATH_TyCon:
+				Path path = value.asPath();
+
+				long pathSize = 96;
+
+				for (Node pathNode : path.nodes()) {
+					pathSize += 64 + _estimateEntitySize(pathNode);
+				}
+
+				for (Relationship pathRelationship : path.relationships()) {
+					pathSize += 96 + _estimateEntitySize(pathRelationship);
+				}
+
+				return pathSize;
+			default:
+				return 16;
+		}
+	}
+
+	private HeapSizeEstimator() {
+	}
+
+	private static long _estimateEntitySize(Entity entity) {
+		long size = 64;
+
+		for (String key : entity.keys()) {
+			size += 48 + _estimateStringSize(key) + estimateSize(entity.get(key));
+		}
+
+		return size;
+	}
+
+	private static long _estimateStringSize(String string) {
+		return 56 + (2L * string.length());
+	}
+
+}
@@ -0,0 +1,368 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.result;
+
+import org.neo4j.driver.internal.InternalNode;
+import org.neo4j.driver.internal.InternalPath;
+import org.neo4j.driver.internal.InternalRecord;
+import org.neo4j.driver.internal.InternalRelationship;
+import org.neo4j.driver.internal.value.InternalValue;
+import org.neo4j.driver.internal.value.ListValue;
+import org.neo4j.driver.internal.value.MapValue;
+import org.neo4j.driver.internal.value.NodeValue;
+import org.neo4j.driver.internal.value.NullValue;
+import org.neo4j.driver.internal.value.PathValue;
+import org.neo4j.driver.internal.value.RelationshipValue;
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.Values;
+import org.neo4j.driver.v1.types.Entity;
+import org.neo4j.driver.v1.types.Node;
+import org.neo4j.driver.v1.types.Path;
+import org.neo4j.driver.v1.types.Relationship;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes the values of driver {@link Record} objects to bytes and back. Records of the same result share their
+ * keys, so only the values are serialized.
+ *
+ * @author Mate Thurzo
+ */
+final class RecordCodec {
+
+	static Record decode(List<String> keys, ByteBuffer byteBuffer) {
+		Value[] values = new Value[keys.size()];
+
+		for (int i = 0; i < values.length; i++) {
+			values[i] = _decodeValue(byteBuffer);
+		}
+
+		return new InternalRecord(keys, values);
+	}
+
+	/**
+	 * Growable byte array a record is serialized into before it is spilled.
+	 */
+	static final class Encoder {
+
+		void encode(Record record) {
+			_size = 0;
+
+			for (Value value : record.values()) {
+				_writeValue(value);
+			}
+		}
+
+		byte[] getBytes() {
+			return _bytes;
+		}
+
+		int getSize() {
+			return _size;
+		}
+
+		private void _ensureCapacity(int length) {
+			if ((_size + length) > _bytes.length) {
+				_bytes = Arrays.copyOf(_bytes, Math.max(_bytes.length * 2, _size + length));
+			}
+		}
+
+		private void _writeBytes(byte[] bytes) {
+			_writeInt(bytes.length);
+
+			_ensureCapacity(bytes.length);
+
+			System.arraycopy(bytes, 0, _bytes, _size, bytes.length);
+
+			_size += bytes.length;
+		}
+
+		private void _writeEntity(Entity entity) {
+			_writeLong(entity.id());
+			_writeInt(entity.size());
+
+			for (String key : entity.keys()) {
+				_writeString(key);
+				_writeValue(entity.get(key));
+			}
+		}
+
+		private void _writeInt(int value) {
+			_ensureCapacity(4);
+
+			_bytes[_size++] = (byte)(value >>> 24);
+			_bytes[_size++] = (byte)(value >>> 16);
+			_bytes[_size++] = (byte)(value >>> 8);
+			_bytes[_size++] = (byte)value;
+		}
+
+		private void _writeLong(long value) {
+			_writeInt((int)(value >>> 32));
+			_writeInt((int)value);
+		}
+
+		private void _writeNode(Node node) {
+			_writeEntity(node);
+
+			List<String> labels = new ArrayList<>();
+
+			node.labels().forEach(labels::add);
+
+			_writeInt(labels.size());
+
+			for (String label : labels) {
+				_writeString(label);
+			}
+		}
+
+		private void _writeRelationship(Relationship relationship) {
+			_writeEntity(relationship);
+			_writeLong(relationship.startNodeId());
+			_writeLong(relationship.endNodeId());
+			_writeString(relationship.type());
+		}
+
+		private void _writeString(String string) {
+			_writeBytes(string.getBytes(StandardCharsets.UTF_8));
+		}
+
+		private void _writeTag(int tag) {
+			_ensureCapacity(1);
+
+			_bytes[_size++] = (byte)tag;
+		}
+
+		private void _writeValue(Value value) {
+			switch (((InternalValue)value).typeConstructor()) {
+				case BOOLEAN_TyCon:
+					_writeTag(value.asBoolean() ? _TAG_TRUE : _TAG_FALSE);
+
+					break;
+				case INTEGER_TyCon:
+					_writeTag(_TAG_INTEGER);
+					_writeLong(value.asLong());
+
+					break;
+				case FLOAT_TyCon:
+					_writeTag(_TAG_FLOAT);
+					_writeLong(Double.doubleToRawLongBits(value.asDouble()));
+
+					break;
+				case STRING_TyCon:
+					_writeTag(_TAG_STRING);
+					_writeString(value.asString());
+
+					break;
+				case BYTES_TyCon:
+					_writeTag(_TAG_BYTES);
+					_writeBytes(value.asByteArray());
+
+					break;
+				case LIST_TyCon:
+					_writeTag(_TAG_LIST);
+					_writeInt(value.size());
+
+					for (Value element : value.values()) {
+						_writeValue(element);
+					}
+
+					break;
+				case MAP_TyCon:
+					_writeTag(_TAG_MAP);
+					_writeInt(value.size());
+
+					for (String key : value.keys()) {
+						_writeString(key);
+						_writeValue(value.get(key));
+					}
+
+					break;
+				case NODE_TyCon:
+					_writeTag(_TAG_NODE);
+					_writeNode(value.asNode());
+
+					break;
+				case RELATIONSHIP_TyCon:
+					_writeTag(_TAG_RELATIONSHIP);
+					_writeRelationship(value.asRelationship());
+
+					break;
+				case PATH_TyCon:
+					Path path = value.asPath();
+
+					_writeTag(_TAG_PATH);
+					_writeInt(path.length());
+
+					for (Node node : path.nodes()) {
+						_writeNode(node);
+					}
+
+					for (Relationship relationship : path.relationships()) {
+						_writeRelationship(relationship);
+					}
+
+					break;
+				default:
+					_writeTag(_TAG_NULL);
+			}
+		}
+
+		private byte[] _bytes = new byte[1024];
+		private int _size;
+
+	}
+
+	private RecordCodec() {
+	}
+
+	private static Map<String, Value> _decodeProperties(ByteBuffer byteBuffer) {
+		int size = byteBuffer.getInt();
+
+		Map<String, Value> properties = new HashMap<>();
+
+		for (int i = 0; i < size; i++) {
+			String key = _decodeString(byteBuffer);
+
+			properties.put(key, _decodeValue(byteBuffer));
+		}
+
+		return properties;
+	}
+
+	private static InternalNode _decodeNode(ByteBuffer byteBuffer) {
+		long id = byteBuffer.getLong();
+
+		Map<String, Value> properties = _decodeProperties(byteBuffer);
+
+		int size = byteBuffer.getInt();
+
+		List<String> labels = new ArrayList<>(size);
+
+		for (int i = 0; i < size; i++) {
+			labels.add(_decodeString(byteBuffer));
+		}
+
+		return new InternalNode(id, labels, properties);
+	}
+
+	private static InternalRelationship _decodeRelationship(ByteBuffer byteBuffer) {
+		long id = byteBuffer.getLong();
+
+		Map<String, Value> properties = _decodeProperties(byteBuffer);
+
+		long startNodeId = byteBuffer.getLong();
+		long endNodeId = byteBuffer.getLong();
+
+		return new InternalRelationship(id, startNodeId, endNodeId, _decodeString(byteBuffer), properties);
+	}
+
+	private static String _decodeString(ByteBuffer byteBuffer) {
+		byte[] bytes = new byte[byteBuffer.getInt()];
+
+		byteBuffer.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static Value _decodeValue(ByteBuffer byteBuffer) {
+		byte tag = byteBuffer.get();
+
+		switch (tag) {
+			case _TAG_FALSE:
+				return Values.value(false);
+			case _TAG_TRUE:
+				return Values.value(true);
+			case _TAG_INTEGER:
+				return Values.value(byteBuffer.getLong());
+			case _TAG_FLOAT:
+				return Values.value(Double.longBitsToDouble(byteBuffer.getLong()));
+			case _TAG_STRING:
+				return Values.value(_decodeString(byteBuffer));
+			case _TAG_BYTES:
+				byte[] bytes = new byte[byteBuffer.getInt()];
+
+				byteBuffer.get(bytes);
+
+				return Values.value(bytes);
+			case _TAG_LIST:
+				Value[] values = new Value[byteBuffer.getInt()];
+
+				for (int i = 0; i < values.length; i++) {
+					values[i] = _decodeValue(byteBuffer);
+				}
+
+				return new ListValue(values);
+			case _TAG_MAP:
+				return new MapValue(_decodeProperties(byteBuffer));
+			case _TAG_NODE:
+				return new NodeValue(_decodeNode(byteBuffer));
+			case _TAG_RELATIONSHIP:
+				return new RelationshipValue(_decodeRelationship(byteBuffer));
+			case _TAG_PATH:
+				int length = byteBuffer.getInt();
+
+				List<Node> nodes = new ArrayList<>(length + 1);
+
+				for (int i = 0; i <= length; i++) {
+					nodes.add(_decodeNode(byteBuffer));
+				}
+
+				List<Entity> entities = new ArrayList<>((length * 2) + 1);
+
+				entities.add(nodes.get(0));
+
+				for (int i = 0; i < length; i++) {
+					entities.add(_decodeRelationship(byteBuffer));
+					entities.add(nodes.get(i + 1));
+				}
+
+				return new PathValue(new InternalPath(entities));
+			default:
+				return NullValue.NULL;
+		}
+	}
+
+	private static final byte _TAG_BYTES = 6;
+
+	private static final byte _TAG_FALSE = 1;
+
+	private static final byte _TAG_FLOAT = 4;
+
+	private static final byte _TAG_INTEGER = 3;
+
+	private static final byte _TAG_LIST = 7;
+
+	private static final byte _TAG_MAP = 8;
+
+	private static final byte _TAG_NODE = 9;
+
+	private static final byte _TAG_NULL = 0;
+
+	private static final byte _TAG_PATH = 11;
+
+	private static final byte _TAG_RELATIONSHIP = 10;
+
+	private static final byte _TAG_STRING = 5;
+
+	private static final byte _TAG_TRUE = 2;
+
+}
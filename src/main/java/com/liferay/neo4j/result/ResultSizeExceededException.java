@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.result;
+
+/**
+ * Thrown when a result set being materialized by {@link GraphDatabaseResult#list()} holds more records than the
+ * configured maximum. The rest of the result set is discarded before this exception is thrown.
+ *
+ * @author Mate Thurzo
+ */
+public class ResultSizeExceededException extends RuntimeException {
+
+	public ResultSizeExceededException(String message) {
+		super(message);
+	}
+
+	private static final long serialVersionUID = 1L;
+
+}
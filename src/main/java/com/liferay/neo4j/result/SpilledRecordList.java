@@ -0,0 +1,369 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.result;
+
+import org.neo4j.driver.v1.Record;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * Read-only list of records materialized within a heap budget. Records are kept on the heap while the budget can hold
+ * their estimated size, the rest of the result set is serialized to a temporary file which is memory mapped once the
+ * result set is exhausted. Spilled records are decoded from the mapped file every time they are accessed, so only the
+ * pages being read are loaded into memory.
+ *
+ * The offset of every spilled record is written to a second temporary file, which is mapped the same way, so spilled
+ * records take no heap at all. The temporary files are opened to be deleted on close and are closed as soon as they
+ * are mapped, their disk space is reclaimed once the list is garbage collected and the mappings are released.
+ *
+ * @author Mate Thurzo
+ */
+final class SpilledRecordList extends AbstractList<Record> implements RandomAccess {
+
+	/**
+	 * Reads every remaining record of a result set.
+	 *
+	 * @param records the records of the result set
+	 * @param keys the keys of the result set
+	 * @param heapBudget the budget the records kept on the heap are reserved from, the rest is spilled to disk once a
+	 *                   record does not fit, null to keep every record on the heap
+	 * @param maxRecords the maximum number of records, 0 or less for no maximum
+	 * @param reservationConsumer receives the reservation of the records kept on the heap, if any were reserved
+	 * @return the records, a mutable list if nothing was spilled to disk
+	 * @throws ResultSizeExceededException if the result set holds more records than the maximum
+	 * @throws UncheckedIOException if the records could not be spilled to disk
+	 */
+	static List<Record> materialize(
+		Iterator<Record> records, List<String> keys, HeapBudget heapBudget, int maxRecords,
+		Consumer<HeapBudget.Reservation> reservationConsumer) {
+
+		return materialize(records, keys, heapBudget, maxRecords, reservationConsumer, _SEGMENT_SIZE);
+	}
+
+	/**
+	 * Reads every remaining record of a result set, mapping the spilled records in segments of the given size.
+	 *
+	 * @param segmentSize the maximum size of a mapped segment in bytes, a multiple of {@link Long#BYTES}
+	 * @see #materialize(Iterator, List, HeapBudget, int, Consumer)
+	 */
+	static List<Record> materialize(
+		Iterator<Record> records, List<String> keys, HeapBudget heapBudget, int maxRecords,
+		Consumer<HeapBudget.Reservation> reservationConsumer, long segmentSize) {
+
+		List<Record> heapRecords = new ArrayList<>();
+
+		long heapSize = 0;
+
+		Spill spill = null;
+
+		try {
+			int count = 0;
+
+			while (records.hasNext()) {
+				Record record = records.next();
+
+				if ((maxRecords > 0) && (++count > maxRecords)) {
+					throw new ResultSizeExceededException(
+						"Result set holds more than the maximum of " + maxRecords + " records");
+				}
+
+				if (spill == null) {
+					if (heapBudget == null) {
+						heapRecords.add(record);
+
+						continue;
+					}
+
+					long size = HeapSizeEstimator.estimateSize(record);
+
+					if (heapBudget.tryReserve(size)) {
+						heapSize += size;
+
+						heapRecords.add(record);
+
+						continue;
+					}
+
+					spill = new Spill(segmentSize);
+				}
+
+				spill.append(record);
+			}
+
+			List<Record> list = heapRecords;
+
+			if (spill != null) {
+				list = new SpilledRecordList(keys, heapRecords, spill);
+			}
+
+			if (heapSize > 0) {
+				reservationConsumer.accept(heapBudget.track(list, heapSize));
+
+				heapSize = 0;
+			}
+
+			return list;
+		}
+		catch (IOException ioe) {
+			throw new UncheckedIOException("Unable to spill result set to disk", ioe);
+		}
+		finally {
+			if (heapSize > 0) {
+				heapBudget.release(heapSize);
+			}
+
+			if (spill != null) {
+				spill.close();
+			}
+		}
+	}
+
+	@Override
+	public Record get(int index) {
+		if (index < _heapRecords.size()) {
+			return _heapRecords.get(index);
+		}
+
+		int spilledIndex = index - _heapRecords.size();
+
+		if ((index < 0) || (spilledIndex >= _spilledCount)) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+
+		long indexPosition = (long)spilledIndex * Long.BYTES;
+
+		long offset = _indexSegments[(int)(indexPosition / _segmentSize)].getLong(
+			(int)(indexPosition % _segmentSize));
+
+		int segment = Arrays.binarySearch(_segmentOffsets, offset);
+
+		if (segment < 0) {
+			segment = -segment - 2;
+		}
+
+		ByteBuffer byteBuffer = _segments[segment].duplicate();
+
+		byteBuffer.position((int)(offset - _segmentOffsets[segment]));
+
+		return RecordCodec.decode(_keys, byteBuffer);
+	}
+
+	@Override
+	public int size() {
+		return _heapRecords.size() + _spilledCount;
+	}
+
+	private SpilledRecordList(List<String> keys, List<Record> heapRecords, Spill spill) throws IOException {
+		_keys = keys;
+		_heapRecords = heapRecords;
+		_segmentSize = spill._segmentSize;
+
+		_spilledCount = spill._count;
+		_segmentOffsets = Arrays.copyOf(spill._segmentOffsets, spill._segmentCount);
+
+		spill.flush();
+
+		_segments = new MappedByteBuffer[_segmentOffsets.length];
+
+		for (int i = 0; i < _segments.length; i++) {
+			long end = spill._records._size;
+
+			if ((i + 1) < _segmentOffsets.length) {
+				end = _segmentOffsets[i + 1];
+			}
+
+			_segments[i] = spill._records.map(_segmentOffsets[i], end - _segmentOffsets[i]);
+		}
+
+		_indexSegments = new MappedByteBuffer[(int)((spill._index._size + _segmentSize - 1) / _segmentSize)];
+
+		for (int i = 0; i < _indexSegments.length; i++) {
+			long position = i * _segmentSize;
+
+			_indexSegments[i] = spill._index.map(position, Math.min(_segmentSize, spill._index._size - position));
+		}
+	}
+
+	private static final long _SEGMENT_SIZE = 1 << 28;
+
+	private final List<Record> _heapRecords;
+	private final MappedByteBuffer[] _indexSegments;
+	private final List<String> _keys;
+	private final long[] _segmentOffsets;
+	private final MappedByteBuffer[] _segments;
+	private final long _segmentSize;
+	private final int _spilledCount;
+
+	/**
+	 * Temporary files the records over the heap budget are appended to, along with the offset of every record. A new
+	 * mapping segment is started whenever a record would make the current one exceed the segment size, so a record
+	 * never spans two segments, and a record larger than the segment size gets a segment of its own. Offsets are fixed
+	 * size, so the segment size is a multiple of their size and the index is mapped in segments of that size.
+	 */
+	private static class Spill {
+
+		public void append(Record record) throws IOException {
+			_encoder.encode(record);
+
+			int length = _encoder.getSize();
+
+			long segmentOffset = _segmentOffsets[_segmentCount - 1];
+
+			if ((_records._size > segmentOffset) && ((_records._size + length - segmentOffset) > _segmentSize)) {
+				if (_segmentCount == _segmentOffsets.length) {
+					_segmentOffsets = Arrays.copyOf(_segmentOffsets, _segmentCount * 2);
+				}
+
+				_segmentOffsets[_segmentCount++] = _records._size;
+			}
+
+			_index.writeLong(_records._size);
+
+			_records.write(ByteBuffer.wrap(_encoder.getBytes(), 0, length));
+
+			_count++;
+		}
+
+		public void close() {
+			_records.close();
+			_index.close();
+		}
+
+		public void flush() throws IOException {
+			_records.flush();
+			_index.flush();
+		}
+
+		private Spill(long segmentSize) throws IOException {
+			_segmentSize = segmentSize;
+
+			_records = new SpillFile();
+
+			try {
+				_index = new SpillFile();
+			}
+			catch (IOException ioe) {
+				_records.close();
+
+				throw ioe;
+			}
+		}
+
+		private int _count;
+		private final RecordCodec.Encoder _encoder = new RecordCodec.Encoder();
+		private final SpillFile _index;
+		private final SpillFile _records;
+		private int _segmentCount = 1;
+		private long[] _segmentOffsets = new long[4];
+		private final long _segmentSize;
+
+	}
+
+	/**
+	 * Temporary file written through a direct buffer. The file is opened with
+	 * {@link StandardOpenOption#DELETE_ON_CLOSE}, so it is removed when its channel is closed, or on platforms which
+	 * cannot delete mapped files, once its last mapping is released.
+	 */
+	private static class SpillFile {
+
+		public void close() {
+			try {
+				_fileChannel.close();
+			}
+			catch (IOException ioe) {
+
+				// The spilled records are either mapped already or being discarded
+
+			}
+		}
+
+		public void flush() throws IOException {
+			_byteBuffer.flip();
+
+			while (_byteBuffer.hasRemaining()) {
+				_fileChannel.write(_byteBuffer);
+			}
+
+			_byteBuffer.clear();
+		}
+
+		public MappedByteBuffer map(long position, long size) throws IOException {
+			return _fileChannel.map(FileChannel.MapMode.READ_ONLY, position, size);
+		}
+
+		public void write(ByteBuffer byteBuffer) throws IOException {
+			int length = byteBuffer.remaining();
+
+			if (length > _byteBuffer.remaining()) {
+				flush();
+			}
+
+			if (length > _byteBuffer.capacity()) {
+				while (byteBuffer.hasRemaining()) {
+					_fileChannel.write(byteBuffer);
+				}
+			}
+			else {
+				_byteBuffer.put(byteBuffer);
+			}
+
+			_size += length;
+		}
+
+		public void writeLong(long value) throws IOException {
+			if (_byteBuffer.remaining() < Long.BYTES) {
+				flush();
+			}
+
+			_byteBuffer.putLong(value);
+
+			_size += Long.BYTES;
+		}
+
+		private SpillFile() throws IOException {
+			Path path = Files.createTempFile("neo4j-result-", ".spill");
+
+			try {
+				_fileChannel = FileChannel.open(
+					path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+			}
+			catch (IOException ioe) {
+				Files.deleteIfExists(path);
+
+				throw ioe;
+			}
+		}
+
+		private final ByteBuffer _byteBuffer = ByteBuffer.allocateDirect(65536);
+		private final FileChannel _fileChannel;
+		private long _size;
+
+	}
+
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.writebehind;
+
+/**
+ * Defines what a full {@link WriteBehindQueue} does with a new write.
+ *
+ * @author Mate Thurzo
+ */
+public enum WriteBehindOverflowPolicy {
+
+	/**
+	 * The write is executed synchronously on the calling thread, which slows producers down to the database speed.
+	 */
+	CALLER_RUNS,
+
+	/**
+	 * The new write is rejected.
+	 */
+	DISCARD,
+
+	/**
+	 * The oldest pending write is removed to make room for the new write.
+	 */
+	DISCARD_OLDEST
+
+}
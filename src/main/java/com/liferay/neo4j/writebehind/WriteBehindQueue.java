@@ -0,0 +1,431 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.writebehind;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue of idempotent write statements which are executed asynchronously in batches by a background worker.
+ * Writes added with the same key are coalesced, only the most recent one is executed. The queue is flushed when the
+ * number of pending writes reaches the batch size or when the flush interval elapses, whichever happens first.
+ *
+ * @author Mate Thurzo
+ */
+public class WriteBehindQueue {
+
+	/**
+	 * Creates a <code>WriteBehindQueue</code> object and starts its background worker.
+	 *
+	 * @param capacity the maximum number of pending writes
+	 * @param batchSize the maximum number of writes executed in a single transaction
+	 * @param flushInterval the time in milliseconds between two scheduled flushes
+	 * @param overflowPolicy what to do with new writes when the queue is full
+	 * @param batchWriter executes a batch of writes in a single write transaction
+	 */
+	public WriteBehindQueue(
+		int capacity, int batchSize, long flushInterval, WriteBehindOverflowPolicy overflowPolicy,
+		Consumer<List<Write>> batchWriter) {
+
+		_capacity = Math.max(1, capacity);
+		_batchSize = Math.max(1, batchSize);
+		_overflowPolicy = overflowPolicy;
+		_batchWriter = batchWriter;
+
+		_scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
+			(runnable) -> {
+				Thread thread = new Thread(runnable, "Neo4j Write Behind Queue");
+
+				thread.setDaemon(true);
+
+				return thread;
+			});
+
+		_scheduledExecutorService.scheduleWithFixedDelay(
+			this::_scheduledFlush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Adds a write to the queue. If a write with the same key is already pending it is replaced by the new one.
+	 *
+	 * @param key the coalescing key of the write, null if the write must not be coalesced
+	 * @param statement the idempotent Cypher write statement
+	 * @param parameters the parameters of the statement
+	 * @return <code>true</code> if the write was accepted, <code>false</code> if it was discarded
+	 */
+	public boolean add(String key, String statement, Map<String, Object> parameters) {
+		Write write = new Write(key, statement, parameters);
+
+		Object mapKey = write._mapKey;
+
+		boolean flush = false;
+		boolean writeThrough = false;
+
+		synchronized (_pendingWrites) {
+			if (_closed) {
+				writeThrough = true;
+			}
+			else if (_pendingWrites.containsKey(mapKey)) {
+				_pendingWrites.put(mapKey, write);
+
+				_coalescedCount.incrementAndGet();
+			}
+			else if (_pendingWrites.size() < _capacity) {
+				_pendingWrites.put(mapKey, write);
+
+				flush = _pendingWrites.size() >= _batchSize;
+			}
+			else if (_overflowPolicy == WriteBehindOverflowPolicy.DISCARD) {
+				_discardedCount.incrementAndGet();
+
+				return false;
+			}
+			else if (_overflowPolicy == WriteBehindOverflowPolicy.DISCARD_OLDEST) {
+				Iterator<Write> iterator = _pendingWrites.values().iterator();
+
+				iterator.next();
+				iterator.remove();
+
+				_discardedCount.incrementAndGet();
+
+				_pendingWrites.put(mapKey, write);
+
+				flush = true;
+			}
+			else {
+				writeThrough = true;
+			}
+		}
+
+		if (writeThrough) {
+
+			// Writing through under the flush lock keeps an older write with the same key, which a flush may be
+			// executing or putting back, from being executed after this one. The lock is fair and flushes hold it for
+			// one batch at a time, so this waits for at most the batch being executed
+
+			_flushLock.lock();
+
+			try {
+				synchronized (_pendingWrites) {
+					if (_pendingWrites.remove(mapKey) != null) {
+						_coalescedCount.incrementAndGet();
+					}
+				}
+
+				_batchWriter.accept(Collections.singletonList(write));
+
+				_flushedCount.incrementAndGet();
+			}
+			finally {
+				_flushLock.unlock();
+			}
+		}
+		else if (flush && _flushScheduled.compareAndSet(false, true)) {
+			try {
+				_scheduledExecutorService.execute(this::_scheduledFlush);
+			}
+			catch (RejectedExecutionException ree) {
+
+				// The queue is being closed, pending writes are flushed by close()
+
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Stops the background worker and flushes every pending write on the calling thread. Writes which fail during this
+	 * last flush are discarded and counted by {@link #getDiscardedCount()}. Writes added after this method is called
+	 * are executed synchronously.
+	 */
+	public void close() {
+		synchronized (_pendingWrites) {
+			_closed = true;
+		}
+
+		_scheduledExecutorService.shutdown();
+
+		try {
+			_scheduledExecutorService.awaitTermination(_CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+
+		flush();
+	}
+
+	/**
+	 * Executes every pending write on the calling thread, in batches of the configured batch size. When a batch fails
+	 * its writes are retried one by one, and only the writes which fail again are put back to the queue, unless they
+	 * have already failed {@link #MAX_ATTEMPTS} times or newer writes with the same keys are pending. Flushing stops
+	 * when none of the writes of a batch could be executed.
+	 *
+	 * Once the queue is closed failed writes are discarded instead of being put back, and if none of the writes of a
+	 * batch could be executed the rest of the pending writes are discarded as well.
+	 *
+	 * The flush lock is held for one batch at a time, so a caller writing through waits for at most the batch being
+	 * executed, never for the whole queue to be drained.
+	 */
+	public void flush() {
+		while (true) {
+			_flushLock.lock();
+
+			try {
+				List<Write> batch = _nextBatch();
+
+				if (batch.isEmpty()) {
+					return;
+				}
+
+				if (!_write(batch)) {
+					_discardPendingIfClosed();
+
+					return;
+				}
+			}
+			finally {
+				_flushLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Returns the maximum number of pending writes.
+	 *
+	 * @return the capacity of the queue
+	 */
+	public int getCapacity() {
+		return _capacity;
+	}
+
+	/**
+	 * Returns the number of writes replaced by a newer write with the same key before they were executed.
+	 *
+	 * @return the number of coalesced writes
+	 */
+	public long getCoalescedCount() {
+		return _coalescedCount.get();
+	}
+
+	/**
+	 * Returns the number of writes dropped because the queue was full, because they failed too many times or because
+	 * they failed after the queue was closed.
+	 *
+	 * @return the number of discarded writes
+	 */
+	public long getDiscardedCount() {
+		return _discardedCount.get();
+	}
+
+	/**
+	 * Returns the number of batches which failed to execute, including the single writes retried from failed batches.
+	 *
+	 * @return the number of failed batches
+	 */
+	public long getFailedBatchCount() {
+		return _failedBatchCount.get();
+	}
+
+	/**
+	 * Returns the number of writes executed successfully.
+	 *
+	 * @return the number of executed writes
+	 */
+	public long getFlushedCount() {
+		return _flushedCount.get();
+	}
+
+	/**
+	 * Returns the number of writes waiting to be executed.
+	 *
+	 * @return the number of pending writes
+	 */
+	public int getSize() {
+		synchronized (_pendingWrites) {
+			return _pendingWrites.size();
+		}
+	}
+
+	/**
+	 * The maximum number of times a write is attempted before it is discarded.
+	 */
+	public static final int MAX_ATTEMPTS = 3;
+
+	/**
+	 * A pending write statement.
+	 */
+	public static class Write {
+
+		public Write(String key, String statement, Map<String, Object> parameters) {
+			_key = key;
+			_statement = statement;
+
+			if (parameters == null) {
+				_parameters = Collections.emptyMap();
+			}
+			else {
+				_parameters = parameters;
+			}
+
+			if (key == null) {
+				_mapKey = new Object();
+			}
+			else {
+				_mapKey = key;
+			}
+		}
+
+		public String getKey() {
+			return _key;
+		}
+
+		public Map<String, Object> getParameters() {
+			return _parameters;
+		}
+
+		public String getStatement() {
+			return _statement;
+		}
+
+		private int _attempts;
+		private final String _key;
+		private final Object _mapKey;
+		private final Map<String, Object> _parameters;
+		private final String _statement;
+
+	}
+
+	private void _discardPendingIfClosed() {
+		synchronized (_pendingWrites) {
+			if (_closed) {
+				_discardedCount.addAndGet(_pendingWrites.size());
+
+				_pendingWrites.clear();
+			}
+		}
+	}
+
+	private List<Write> _nextBatch() {
+		List<Write> batch = new ArrayList<>(_batchSize);
+
+		synchronized (_pendingWrites) {
+			Iterator<Write> iterator = _pendingWrites.values().iterator();
+
+			while (iterator.hasNext() && (batch.size() < _batchSize)) {
+				batch.add(iterator.next());
+
+				iterator.remove();
+			}
+		}
+
+		return batch;
+	}
+
+	private void _requeue(Write write) {
+		synchronized (_pendingWrites) {
+			if (_closed || (++write._attempts >= MAX_ATTEMPTS) || (_pendingWrites.size() >= _capacity)) {
+				_discardedCount.incrementAndGet();
+			}
+			else if (_pendingWrites.putIfAbsent(write._mapKey, write) != null) {
+
+				// A newer write with the same key was added while this one was being executed, it supersedes it
+
+				_coalescedCount.incrementAndGet();
+			}
+		}
+	}
+
+	private void _scheduledFlush() {
+		_flushScheduled.set(false);
+
+		flush();
+	}
+
+	/**
+	 * Executes a batch of writes. If the batch fails its writes are retried one by one, so a single failing write does
+	 * not keep the rest of the batch from being executed.
+	 *
+	 * @param batch the writes to execute
+	 * @return <code>true</code> if at least one write of the batch was executed
+	 */
+	private boolean _write(List<Write> batch) {
+		try {
+			_batchWriter.accept(batch);
+
+			_flushedCount.addAndGet(batch.size());
+
+			return true;
+		}
+		catch (RuntimeException re) {
+			_failedBatchCount.incrementAndGet();
+		}
+
+		if (batch.size() == 1) {
+			_requeue(batch.get(0));
+
+			return false;
+		}
+
+		boolean written = false;
+
+		for (Write write : batch) {
+			try {
+				_batchWriter.accept(Collections.singletonList(write));
+
+				_flushedCount.incrementAndGet();
+
+				written = true;
+			}
+			catch (RuntimeException re) {
+				_failedBatchCount.incrementAndGet();
+
+				_requeue(write);
+			}
+		}
+
+		return written;
+	}
+
+	private static final long _CLOSE_TIMEOUT = 10000;
+
+	private final int _batchSize;
+	private final Consumer<List<Write>> _batchWriter;
+	private final int _capacity;
+	private boolean _closed;
+	private final AtomicLong _coalescedCount = new AtomicLong();
+	private final AtomicLong _discardedCount = new AtomicLong();
+	private final AtomicLong _failedBatchCount = new AtomicLong();
+	private final AtomicLong _flushedCount = new AtomicLong();
+	private final ReentrantLock _flushLock = new ReentrantLock(true);
+	private final AtomicBoolean _flushScheduled = new AtomicBoolean();
+	private final WriteBehindOverflowPolicy _overflowPolicy;
+	private final LinkedHashMap<Object, Write> _pendingWrites = new LinkedHashMap<>();
+	private final ScheduledExecutorService _scheduledExecutorService;
+
+}
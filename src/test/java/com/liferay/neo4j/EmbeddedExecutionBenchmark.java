@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.kernel.configuration.BoltConnector;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares statements run over Bolt on localhost with the same statements run in-process on the embedded database.
+ * Each {@link GraphDatabase} runs against its own embedded store seeded with the same data, the Bolt one through a Bolt
+ * connector listening on a free local port. The benchmark is not run by the build, it can be started with:
+ *
+ * <pre>
+ * java -cp ... com.liferay.neo4j.EmbeddedExecutionBenchmark [iterations] [nodes]
+ * </pre>
+ *
+ * @author Mate Thurzo
+ */
+public class EmbeddedExecutionBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+		int nodes = (args.length > 1) ? Integer.parseInt(args[1]) : 10000;
+
+		Path boltDatabasePath = Files.createTempDirectory("neo4j-bolt-benchmark");
+		Path embeddedDatabasePath = Files.createTempDirectory("neo4j-embedded-benchmark");
+
+		int port = _getFreePort();
+
+		BoltConnector boltConnector = new BoltConnector("bolt");
+
+		GraphDatabaseFactory graphDatabaseFactory = new GraphDatabaseFactory();
+
+		GraphDatabaseService graphDatabaseService = null;
+		GraphDatabase boltGraphDatabase = null;
+		GraphDatabase embeddedGraphDatabase = null;
+
+		try {
+			graphDatabaseService = graphDatabaseFactory.newEmbeddedDatabaseBuilder(
+				boltDatabasePath.toFile()
+			).setConfig(
+				boltConnector.enabled, "true"
+			).setConfig(
+				boltConnector.listen_address, "localhost:" + port
+			).newGraphDatabase();
+
+			boltGraphDatabase = _activate(false, port, boltDatabasePath);
+			embeddedGraphDatabase = _activate(true, port, embeddedDatabasePath);
+
+			_seed(boltGraphDatabase, nodes);
+			_seed(embeddedGraphDatabase, nodes);
+
+			System.out.println(
+				String.format(
+					"%-8s %-9s %10s %10s %10s %10s", "query", "mode", "ops/s", "p50 us", "p99 us", "max us"));
+
+			for (String[] query : _QUERIES) {
+				_run(query, "bolt", boltGraphDatabase, iterations, nodes);
+				_run(query, "embedded", embeddedGraphDatabase, iterations, nodes);
+			}
+		}
+		finally {
+			if (boltGraphDatabase != null) {
+				boltGraphDatabase.deactivate();
+			}
+
+			if (embeddedGraphDatabase != null) {
+				embeddedGraphDatabase.deactivate();
+			}
+
+			if (graphDatabaseService != null) {
+				graphDatabaseService.shutdown();
+			}
+
+			_delete(boltDatabasePath);
+			_delete(embeddedDatabasePath);
+		}
+	}
+
+	private static GraphDatabase _activate(boolean embedded, int port, Path embeddedDatabasePath) {
+		Map<String, Object> properties = new HashMap<>();
+
+		properties.put("embeddedDatabasePath", embeddedDatabasePath.toString());
+		properties.put("embeddedExecutionEnabled", String.valueOf(embedded));
+		properties.put("hostname", "localhost");
+		properties.put("password", "neo4j");
+		properties.put("port", String.valueOf(port));
+		properties.put("userName", "neo4j");
+
+		GraphDatabase graphDatabase = new GraphDatabase();
+
+		graphDatabase.activate(properties);
+
+		return graphDatabase;
+	}
+
+	private static void _delete(Path path) throws IOException {
+		Files.walk(
+			path
+		).sorted(
+			Comparator.reverseOrder()
+		).map(
+			Path::toFile
+		).forEach(
+			File::delete
+		);
+	}
+
+	private static int _getFreePort() throws IOException {
+		try (ServerSocket serverSocket = new ServerSocket(0)) {
+			return serverSocket.getLocalPort();
+		}
+	}
+
+	private static void _run(String[] query, String mode, GraphDatabase graphDatabase, int iterations, int nodes) {
+		Random random = new Random(0);
+
+		for (int i = 0; i < (iterations / 10); i++) {
+			_runQuery(query, graphDatabase, random.nextInt(nodes));
+		}
+
+		long[] latencies = new long[iterations];
+
+		long startNanos = System.nanoTime();
+
+		for (int i = 0; i < iterations; i++) {
+			long queryStartNanos = System.nanoTime();
+
+			_runQuery(query, graphDatabase, random.nextInt(nodes));
+
+			latencies[i] = System.nanoTime() - queryStartNanos;
+		}
+
+		long elapsedNanos = System.nanoTime() - startNanos;
+
+		Arrays.sort(latencies);
+
+		System.out.println(
+			String.format(
+				"%-8s %-9s %10.0f %10d %10d %10d", query[0], mode,
+				(iterations * (double)TimeUnit.SECONDS.toNanos(1)) / elapsedNanos,
+				TimeUnit.NANOSECONDS.toMicros(latencies[latencies.length / 2]),
+				TimeUnit.NANOSECONDS.toMicros(latencies[(int)(latencies.length * 0.99)]),
+				TimeUnit.NANOSECONDS.toMicros(latencies[latencies.length - 1])));
+	}
+
+	private static void _runQuery(String[] query, GraphDatabase graphDatabase, int id) {
+		if (query[0].equals("stream")) {
+			graphDatabase.runStatement(
+				query[1]
+			).recordStream(
+			).forEach(
+				record -> {
+				}
+			);
+		}
+		else {
+			graphDatabase.runImmediateStatement(query[1], Collections.singletonMap("id", id));
+		}
+	}
+
+	private static void _seed(GraphDatabase graphDatabase, int nodes) {
+		graphDatabase.runImmediateStatement("CREATE INDEX ON :Item(id)");
+
+		graphDatabase.runImmediateStatement(
+			"UNWIND range(0, $nodes - 1) AS id CREATE (:Item {id: id, name: 'item' + id})",
+			Collections.singletonMap("nodes", nodes));
+
+		graphDatabase.runImmediateStatement("CALL db.awaitIndexes(60)");
+	}
+
+	private static final String[][] _QUERIES = {
+		{"lookup", "MATCH (item:Item {id: $id}) RETURN item"},
+		{"stream", "MATCH (item:Item) RETURN item LIMIT 100"},
+		{"write", "MATCH (item:Item {id: $id}) SET item.counter = coalesce(item.counter, 0) + 1"}
+	};
+
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j;
+
+import com.liferay.neo4j.result.EmbeddedStatementResult;
+import com.liferay.neo4j.writebehind.WriteBehindQueue;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.summary.ResultSummary;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.TransactionTerminatedException;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Mate Thurzo
+ */
+public class EmbeddedGraphDatabaseTest {
+
+	@BeforeClass
+	public static void setUpClass() throws IOException {
+		_embeddedGraphDatabase = new EmbeddedGraphDatabase(temporaryFolder.newFolder().getPath());
+
+		GraphDatabaseAPI graphDatabaseAPI = (GraphDatabaseAPI)_embeddedGraphDatabase.getGraphDatabaseService();
+
+		_threadToStatementContextBridge = graphDatabaseAPI.getDependencyResolver().resolveDependency(
+			ThreadToStatementContextBridge.class);
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		_embeddedGraphDatabase.shutdown();
+	}
+
+	@After
+	public void tearDown() {
+		Assert.assertFalse(_threadToStatementContextBridge.hasTransaction());
+
+		_embeddedGraphDatabase.run("MATCH (n) DETACH DELETE n").consume();
+	}
+
+	@Test
+	public void testConsumeKeepsProfileOfReadOnlyStatement() {
+		_embeddedGraphDatabase.run("CREATE (:Label1), (:Label1)").consume();
+
+		EmbeddedStatementResult embeddedStatementResult = _embeddedGraphDatabase.run(
+			"PROFILE MATCH (n:Label1) RETURN n");
+
+		ResultSummary resultSummary = embeddedStatementResult.consume();
+
+		Assert.assertTrue(resultSummary.hasProfile());
+		Assert.assertEquals(2, resultSummary.profile().records());
+	}
+
+	@Test
+	public void testConsumeRunsWriteStatementToCompletion() {
+		EmbeddedStatementResult embeddedStatementResult = _embeddedGraphDatabase.run(
+			"UNWIND range(1, 10) AS i CREATE (n:Label1 {i: i}) RETURN n");
+
+		ResultSummary resultSummary = embeddedStatementResult.consume();
+
+		Assert.assertEquals(10, resultSummary.counters().nodesCreated());
+		Assert.assertEquals(10, _count("Label1"));
+	}
+
+	@Test
+	public void testReadFailureRollsBackTransaction() {
+		EmbeddedStatementResult embeddedStatementResult = _embeddedGraphDatabase.run(
+			"UNWIND [1, 0] AS i RETURN 1 / i AS x");
+
+		Assert.assertEquals(1, embeddedStatementResult.next().get("x").asLong());
+
+		try {
+			embeddedStatementResult.next();
+
+			Assert.fail();
+		}
+		catch (RuntimeException re) {
+		}
+
+		Assert.assertFalse(embeddedStatementResult.hasNext());
+	}
+
+	@Test
+	public void testReadOnAnotherThread() throws InterruptedException {
+		_embeddedGraphDatabase.run("CREATE (:Label1 {i: 1}), (:Label1 {i: 2})").consume();
+
+		EmbeddedStatementResult embeddedStatementResult = _embeddedGraphDatabase.run(
+			"MATCH (n:Label1) RETURN n.i AS i ORDER BY i");
+
+		// The transaction is not left bound to the thread which ran the statement
+
+		Assert.assertFalse(_threadToStatementContextBridge.hasTransaction());
+
+		BlockingQueue<Object> values = new ArrayBlockingQueue<>(3);
+
+		Thread thread = new Thread(
+			() -> {
+				try {
+					for (Record record : embeddedStatementResult.list()) {
+						values.add(record.get("i").asLong());
+					}
+
+					values.add(_threadToStatementContextBridge.hasTransaction());
+				}
+				catch (RuntimeException re) {
+					values.add(re);
+				}
+			});
+
+		thread.start();
+		thread.join();
+
+		Assert.assertEquals(Arrays.asList(1L, 2L, false), Arrays.asList(values.toArray()));
+	}
+
+	@Test
+	public void testRollback() {
+		EmbeddedStatementResult embeddedStatementResult = _embeddedGraphDatabase.run("CREATE (n:Label1) RETURN n");
+
+		embeddedStatementResult.rollback();
+
+		Assert.assertEquals(0, _count("Label1"));
+		Assert.assertFalse(embeddedStatementResult.hasNext());
+	}
+
+	@Test
+	public void testRunFailureRollsBackTransaction() {
+		try {
+			_embeddedGraphDatabase.run("UNWIND [1, 0] AS i CREATE (n:Label1) RETURN 1 / i AS x");
+
+			Assert.fail();
+		}
+		catch (RuntimeException re) {
+		}
+
+		Assert.assertEquals(0, _count("Label1"));
+	}
+
+	@Test
+	public void testRunJoinsCallerTransaction() {
+		try (Transaction transaction = _embeddedGraphDatabase.getGraphDatabaseService().beginTx()) {
+			_embeddedGraphDatabase.run("CREATE (n:Label1)").consume();
+
+			// The nested statement leaves the transaction with the caller, which still sees its write
+
+			Assert.assertTrue(_threadToStatementContextBridge.hasTransaction());
+
+			Assert.assertEquals(1, _embeddedGraphDatabase.run("MATCH (n:Label1) RETURN n").list().size());
+
+			transaction.failure();
+		}
+
+		Assert.assertEquals(0, _count("Label1"));
+	}
+
+	@Test
+	public void testRunWriteBatch() {
+		_embeddedGraphDatabase.runWriteBatch(
+			Arrays.asList(
+				new WriteBehindQueue.Write(null, "UNWIND range(1, 5) AS i CREATE (n:Label1) RETURN n", null),
+				new WriteBehindQueue.Write(
+					null, "CREATE (n:Label2 {name: $name})", Collections.singletonMap("name", "test"))));
+
+		Assert.assertEquals(5, _count("Label1"));
+		Assert.assertEquals(1, _count("Label2"));
+	}
+
+	@Test
+	public void testTerminate() throws InterruptedException {
+		EmbeddedStatementResult embeddedStatementResult = _embeddedGraphDatabase.run(
+			"UNWIND range(1, 1000000) AS i CREATE (n:Label1) RETURN n");
+
+		Assert.assertTrue(embeddedStatementResult.hasNext());
+
+		embeddedStatementResult.next();
+
+		Thread thread = new Thread(embeddedStatementResult::terminate);
+
+		thread.start();
+		thread.join(TimeUnit.SECONDS.toMillis(10));
+
+		try {
+			embeddedStatementResult.next();
+
+			Assert.fail();
+		}
+		catch (TransactionTerminatedException tte) {
+		}
+
+		Assert.assertEquals(0, _count("Label1"));
+	}
+
+	private long _count(String label) {
+		EmbeddedStatementResult embeddedStatementResult = _embeddedGraphDatabase.run(
+			"MATCH (n:" + label + ") RETURN count(n) AS count");
+
+		return embeddedStatementResult.single().get("count").asLong();
+	}
+
+	@ClassRule
+	public static final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private static EmbeddedGraphDatabase _embeddedGraphDatabase;
+	private static ThreadToStatementContextBridge _threadToStatementContextBridge;
+
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j;
+
+import com.liferay.neo4j.result.ResultSizeExceededException;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.driver.v1.StatementResult;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.kernel.configuration.BoltConnector;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * @author Mate Thurzo
+ */
+public class GraphDatabaseScopeTest {
+
+	@BeforeClass
+	public static void setUpClass() throws IOException {
+		int port;
+
+		try (ServerSocket serverSocket = new ServerSocket(0)) {
+			port = serverSocket.getLocalPort();
+		}
+
+		BoltConnector boltConnector = new BoltConnector("bolt");
+
+		GraphDatabaseFactory graphDatabaseFactory = new GraphDatabaseFactory();
+
+		_graphDatabaseService = graphDatabaseFactory.newEmbeddedDatabaseBuilder(
+			temporaryFolder.newFolder()
+		).setConfig(
+			boltConnector.enabled, "true"
+		).setConfig(
+			boltConnector.listen_address, "localhost:" + port
+		).newGraphDatabase();
+
+		Map<String, Object> properties = new HashMap<>();
+
+		properties.put("embeddedExecutionEnabled", "false");
+		properties.put("hostname", "localhost");
+		properties.put("password", "neo4j");
+		properties.put("port", String.valueOf(port));
+		properties.put("resultMaxRecords", "1000");
+		properties.put("userName", "neo4j");
+
+		_graphDatabase = new GraphDatabase();
+
+		_graphDatabase.activate(properties);
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		_graphDatabase.deactivate();
+
+		_graphDatabaseService.shutdown();
+	}
+
+	@Test
+	public void testCloseOnAnotherThreadIsRejected() throws InterruptedException {
+		GraphDatabaseSession scope = _graphDatabase.openScope();
+
+		BlockingQueue<RuntimeException> failures = new ArrayBlockingQueue<>(1);
+
+		Thread thread = new Thread(
+			() -> {
+				try {
+					scope.close();
+				}
+				catch (RuntimeException re) {
+					failures.add(re);
+				}
+			});
+
+		thread.start();
+		thread.join();
+
+		Assert.assertTrue(failures.poll() instanceof IllegalStateException);
+		Assert.assertTrue(scope.isOpen());
+
+		scope.close();
+
+		Assert.assertFalse(scope.isOpen());
+
+		// The thread is no longer bound to the closed scope
+
+		try (GraphDatabaseSession nextScope = _graphDatabase.openScope()) {
+			Assert.assertNotEquals(scope.getUuid(), nextScope.getUuid());
+			Assert.assertTrue(nextScope.isOpen());
+		}
+	}
+
+	@Test
+	public void testImmediateResultExceedingMaxRecords() {
+		try (GraphDatabaseSession scope = _graphDatabase.openScope()) {
+			try {
+				_graphDatabase.runImmediateStatement("UNWIND range(1, 1000000) AS i RETURN i");
+
+				Assert.fail();
+			}
+			catch (ResultSizeExceededException rsee) {
+			}
+
+			// The rest of the result set was discarded, so the session of the scope runs further statements
+
+			Assert.assertEquals(1, _graphDatabase.runImmediateStatement("RETURN 1").list().size());
+		}
+
+		try {
+			_graphDatabase.runImmediateStatement("UNWIND range(1, 1000000) AS i RETURN i");
+
+			Assert.fail();
+		}
+		catch (ResultSizeExceededException rsee) {
+		}
+
+		Assert.assertEquals(1, _graphDatabase.runImmediateStatement("RETURN 1").list().size());
+	}
+
+	@Test
+	public void testLastBookmark() {
+		String bookmark;
+
+		try (GraphDatabaseSession scope = _graphDatabase.openScope()) {
+			Assert.assertNull(scope.lastBookmark());
+
+			scope.writeTransaction((transaction) -> transaction.run("CREATE (:Label1)"));
+
+			bookmark = scope.lastBookmark();
+		}
+
+		Assert.assertNotNull(bookmark);
+
+		try (GraphDatabaseSession scope = _graphDatabase.openScope(bookmark)) {
+
+			// The bookmark is returned before the session is opened by the first statement
+
+			Assert.assertEquals(bookmark, scope.lastBookmark());
+
+			scope.writeTransaction((transaction) -> transaction.run("MATCH (n:Label1) DELETE n"));
+
+			Assert.assertNotNull(scope.lastBookmark());
+			Assert.assertNotEquals(bookmark, scope.lastBookmark());
+		}
+	}
+
+	@Test
+	public void testLazySessionIsNotOpenedWithoutStatements() {
+		long sessionOpenCount = _graphDatabase.getSessionOpenCount();
+
+		try (GraphDatabaseSession scope = _graphDatabase.openScope()) {
+			Assert.assertTrue(scope.isOpen());
+		}
+
+		Assert.assertEquals(sessionOpenCount, _graphDatabase.getSessionOpenCount());
+	}
+
+	@Test
+	public void testNestedScopeJoinsOuterScope() {
+		long sessionOpenCount = _graphDatabase.getSessionOpenCount();
+
+		try (GraphDatabaseSession scope = _graphDatabase.openScope()) {
+			try (GraphDatabaseSession nestedScope = _graphDatabase.openScope()) {
+				_graphDatabase.runImmediateStatement("RETURN 1");
+
+				Assert.assertEquals(scope.lastBookmark(), nestedScope.lastBookmark());
+			}
+
+			// Closing the nested scope leaves the session of the outer scope open
+
+			Assert.assertTrue(scope.isOpen());
+
+			_graphDatabase.runImmediateStatement("RETURN 1");
+		}
+
+		Assert.assertEquals(sessionOpenCount + 1, _graphDatabase.getSessionOpenCount());
+	}
+
+	@Test
+	public void testNestedScopeWithUnrelatedBookmarkIsRejected() {
+		try (GraphDatabaseSession scope = _graphDatabase.openScope()) {
+			scope.writeTransaction((transaction) -> transaction.run("CREATE (n:Label1) DELETE n"));
+
+			try {
+				_graphDatabase.openScope("unrelated");
+
+				Assert.fail();
+			}
+			catch (IllegalStateException ise) {
+			}
+
+			try (GraphDatabaseSession nestedScope = _graphDatabase.openScope(scope.lastBookmark())) {
+				Assert.assertEquals(scope.lastBookmark(), nestedScope.lastBookmark());
+			}
+
+			try (GraphDatabaseSession nestedScope = _graphDatabase.openScope(null)) {
+				Assert.assertEquals(scope.lastBookmark(), nestedScope.lastBookmark());
+			}
+		}
+	}
+
+	@Test
+	public void testResetIfLastStatementResult() {
+		try (GraphDatabaseSession scope = _graphDatabase.openScope()) {
+			StatementResult statementResult = scope.run("UNWIND range(1, 10) AS i RETURN i");
+
+			StatementResult lastStatementResult = scope.run("UNWIND range(1, 1000000) AS i RETURN i");
+
+			// Resetting the session for the earlier result would terminate the statement which followed it
+
+			Assert.assertFalse(scope.resetIfLastStatementResult(statementResult));
+
+			Assert.assertEquals(10, statementResult.list().size());
+
+			Assert.assertTrue(lastStatementResult.hasNext());
+
+			Assert.assertTrue(scope.resetIfLastStatementResult(lastStatementResult));
+
+			// The session runs further statements although the terminated result was never consumed
+
+			Assert.assertEquals(1, scope.run("RETURN 1").single().get(0).asInt());
+
+			Assert.assertFalse(scope.resetIfLastStatementResult(lastStatementResult));
+		}
+	}
+
+	@ClassRule
+	public static final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private static GraphDatabase _graphDatabase;
+	private static GraphDatabaseService _graphDatabaseService;
+
+}
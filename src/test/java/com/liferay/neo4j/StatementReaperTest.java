@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j;
+
+import com.liferay.neo4j.result.GraphDatabaseResult;
+import com.liferay.neo4j.result.GraphDatabaseResultEventHandler;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.exceptions.ClientException;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.kernel.configuration.BoltConnector;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * @author Mate Thurzo
+ */
+public class StatementReaperTest {
+
+	@BeforeClass
+	public static void setUpClass() throws IOException {
+		int port;
+
+		try (ServerSocket serverSocket = new ServerSocket(0)) {
+			port = serverSocket.getLocalPort();
+		}
+
+		BoltConnector boltConnector = new BoltConnector("bolt");
+
+		GraphDatabaseFactory graphDatabaseFactory = new GraphDatabaseFactory();
+
+		_graphDatabaseService = graphDatabaseFactory.newEmbeddedDatabaseBuilder(
+			temporaryFolder.newFolder()
+		).setConfig(
+			boltConnector.enabled, "true"
+		).setConfig(
+			boltConnector.listen_address, "localhost:" + port
+		).newGraphDatabase();
+
+		Map<String, Object> properties = new HashMap<>();
+
+		properties.put("embeddedExecutionEnabled", "false");
+		properties.put("hostname", "localhost");
+		properties.put("password", "neo4j");
+		properties.put("port", String.valueOf(port));
+		properties.put("userName", "neo4j");
+
+		_graphDatabase = new GraphDatabase();
+
+		_graphDatabase.activate(properties);
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		_graphDatabase.deactivate();
+
+		_graphDatabaseService.shutdown();
+	}
+
+	@Test
+	public void testCompleteCancelsDeadline() throws InterruptedException {
+		StatementReaper statementReaper = new StatementReaper();
+
+		try {
+			List<Boolean> aborts = new CopyOnWriteArrayList<>();
+
+			GraphDatabaseResult graphDatabaseResult = new GraphDatabaseResult();
+
+			GraphDatabaseResultEventHandler completeHandler = statementReaper.track(
+				graphDatabaseResult, 50, aborts::add, () -> Assert.fail());
+
+			completeHandler.handle();
+
+			Thread.sleep(200);
+
+			Assert.assertTrue(aborts.isEmpty());
+			Assert.assertEquals(0, statementReaper.getDeadlineExpiredCount());
+		}
+		finally {
+			statementReaper.shutdown();
+		}
+	}
+
+	@Test
+	public void testDeadlineExpiry() throws InterruptedException {
+		StatementReaper statementReaper = new StatementReaper();
+
+		try {
+			List<Boolean> aborts = new CopyOnWriteArrayList<>();
+			List<String> threadNames = new CopyOnWriteArrayList<>();
+
+			GraphDatabaseResult graphDatabaseResult = new GraphDatabaseResult();
+
+			GraphDatabaseResultEventHandler completeHandler = statementReaper.track(
+				graphDatabaseResult, 50,
+				(expired) -> {
+					aborts.add(expired);
+
+					Thread thread = Thread.currentThread();
+
+					threadNames.add(thread.getName());
+				},
+				() -> Assert.fail());
+
+			_await(() -> !aborts.isEmpty());
+
+			Assert.assertEquals(1, statementReaper.getDeadlineExpiredCount());
+			Assert.assertEquals("Neo4j Statement Reaper", threadNames.get(0));
+			Assert.assertTrue(aborts.get(0));
+
+			// The expired result still belongs to its caller, completing it later aborts nothing more
+
+			completeHandler.handle();
+
+			Thread.sleep(100);
+
+			Assert.assertEquals(1, aborts.size());
+			Assert.assertEquals(0, statementReaper.getLeakedResultCount());
+		}
+		finally {
+			statementReaper.shutdown();
+		}
+	}
+
+	@Test
+	public void testExpiredStatementIsTerminated() throws InterruptedException {
+		Assert.assertEquals(1, _graphDatabase.runImmediateStatement("RETURN 1").list().size());
+
+		long deadlineExpiredCount = _graphDatabase.getDeadlineExpiredCount();
+
+		GraphDatabaseResult graphDatabaseResult = _graphDatabase.runStatement(
+			"UNWIND range(1, 1000000) AS i RETURN i", 1000);
+
+		Iterator<Record> iterator = graphDatabaseResult.recordStream().iterator();
+
+		Assert.assertEquals(1, iterator.next().get(0).asInt());
+
+		_await(() -> _graphDatabase.getDeadlineExpiredCount() > deadlineExpiredCount);
+
+		// The statement is killed, or its session is reset where the server cannot kill statements, and the statement
+		// killer thread closes the session while the caller holds the result without reading it
+
+		Thread.sleep(500);
+
+		try {
+			while (iterator.hasNext()) {
+				iterator.next();
+			}
+
+			Assert.fail();
+		}
+		catch (ClientException ce) {
+			Assert.assertEquals("Neo.ClientError.Transaction.TransactionTimedOut", ce.code());
+
+			// The closed session is left alone when the caller fails the result
+
+			Assert.assertEquals(0, ce.getSuppressed().length);
+		}
+
+		Assert.assertEquals(1, _graphDatabase.runImmediateStatement("RETURN 1").list().size());
+	}
+
+	@Test
+	public void testLeakedResultIsReclaimed() throws InterruptedException {
+		StatementReaper statementReaper = new StatementReaper();
+
+		try {
+			List<Boolean> aborts = new CopyOnWriteArrayList<>();
+
+			CountDownLatch reclaimLatch = new CountDownLatch(1);
+
+			statementReaper.track(new GraphDatabaseResult(), 0, aborts::add, reclaimLatch::countDown);
+
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+			while (!reclaimLatch.await(100, TimeUnit.MILLISECONDS)) {
+				if (System.nanoTime() > deadline) {
+					Assert.fail("The unreachable result was not reclaimed within 10 seconds");
+				}
+
+				System.gc();
+			}
+
+			// The result is aborted before its resources are reclaimed
+
+			Assert.assertEquals(1, aborts.size());
+			Assert.assertFalse(aborts.get(0));
+			Assert.assertEquals(0, statementReaper.getDeadlineExpiredCount());
+			Assert.assertEquals(1, statementReaper.getLeakedResultCount());
+		}
+		finally {
+			statementReaper.shutdown();
+		}
+	}
+
+	private static void _await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) {
+				Assert.fail("The condition was not met within 10 seconds");
+			}
+
+			Thread.sleep(10);
+		}
+	}
+
+	@ClassRule
+	public static final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private static GraphDatabase _graphDatabase;
+	private static GraphDatabaseService _graphDatabaseService;
+
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.neo4j.driver.internal.InternalNode;
+import org.neo4j.driver.v1.types.Node;
+
+/**
+ * @author Mate Thurzo
+ */
+public class EntityCacheTest {
+
+	@Test
+	public void testClearInvalidatesEveryEntity() {
+		EntityCache<Node> entityCache = new EntityCache<>(6);
+
+		for (long id = 0; id < 6; id++) {
+			entityCache.put(new InternalNode(id));
+		}
+
+		entityCache.get(0);
+
+		entityCache.clear();
+
+		Assert.assertEquals(0, entityCache.getSize());
+
+		for (long id = 0; id < 6; id++) {
+			Assert.assertNull(entityCache.get(id));
+		}
+
+		Assert.assertEquals(1, entityCache.getHitCount());
+		Assert.assertEquals(6, entityCache.getMissCount());
+
+		entityCache.put(new InternalNode(3));
+
+		Assert.assertEquals(3, entityCache.get(3).id());
+	}
+
+	@Test
+	public void testCollidingIds() {
+		EntityCache<Node> entityCache = new EntityCache<>(6);
+
+		long[] ids = _getIds(3, 2, 8);
+
+		for (long id : ids) {
+			entityCache.put(new InternalNode(id));
+		}
+
+		Assert.assertEquals(3, entityCache.getSize());
+
+		for (long id : ids) {
+			Assert.assertEquals(id, entityCache.get(id).id());
+		}
+
+		Assert.assertNull(entityCache.get(_getIds(4, 2, 8)[3]));
+	}
+
+	@Test
+	public void testEvictionPrefersEntitiesNotLookedUp() {
+		EntityCache<Node> entityCache = new EntityCache<>(3);
+
+		// The table has 4 slots, each id is put in its own home slot
+
+		long[] ids = {_getIds(1, 0, 4)[0], _getIds(1, 1, 4)[0], _getIds(1, 2, 4)[0], _getIds(1, 3, 4)[0]};
+
+		for (int i = 0; i < 3; i++) {
+			entityCache.put(new InternalNode(ids[i]));
+		}
+
+		// Every entity has been referenced by put(), so the clock hand unmarks all of them and evicts the first one
+
+		entityCache.put(new InternalNode(ids[3]));
+
+		Assert.assertEquals(3, entityCache.getSize());
+		Assert.assertEquals(1, entityCache.getEvictionCount());
+
+		Assert.assertNotNull(entityCache.get(ids[2]));
+
+		long id = _getIds(2, 0, 4)[1];
+
+		entityCache.put(new InternalNode(id));
+
+		Assert.assertEquals(3, entityCache.getSize());
+		Assert.assertEquals(2, entityCache.getEvictionCount());
+
+		Assert.assertNull(entityCache.get(ids[0]));
+		Assert.assertNull(entityCache.get(ids[1]));
+		Assert.assertEquals(ids[2], entityCache.get(ids[2]).id());
+		Assert.assertEquals(ids[3], entityCache.get(ids[3]).id());
+		Assert.assertEquals(id, entityCache.get(id).id());
+	}
+
+	@Test
+	public void testGetAll() {
+		EntityCache<Node> entityCache = new EntityCache<>(6);
+
+		entityCache.put(new InternalNode(1));
+		entityCache.put(new InternalNode(3));
+
+		Node[] nodes = new Node[4];
+
+		Assert.assertEquals(2, entityCache.getAll(new long[] {0, 1, 2, 3}, nodes));
+
+		Assert.assertNull(nodes[0]);
+		Assert.assertEquals(1, nodes[1].id());
+		Assert.assertNull(nodes[2]);
+		Assert.assertEquals(3, nodes[3].id());
+
+		Assert.assertEquals(2, entityCache.getHitCount());
+		Assert.assertEquals(2, entityCache.getMissCount());
+		Assert.assertEquals(0.5, entityCache.getHitRate(), 0);
+	}
+
+	@Test
+	public void testPutReplacesEntityWithSameId() {
+		EntityCache<Node> entityCache = new EntityCache<>(6);
+
+		Node node = new InternalNode(1);
+
+		entityCache.put(new InternalNode(1));
+		entityCache.put(node);
+
+		Assert.assertEquals(1, entityCache.getSize());
+		Assert.assertSame(node, entityCache.get(1));
+		Assert.assertEquals(0, entityCache.getEvictionCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPutWithNegativeId() {
+		EntityCache<Node> entityCache = new EntityCache<>(6);
+
+		entityCache.put(new InternalNode(-1));
+	}
+
+	@Test
+	public void testRemoveKeepsProbeSequence() {
+		EntityCache<Node> entityCache = new EntityCache<>(6);
+
+		long[] ids = _getIds(4, 2, 8);
+
+		for (long id : ids) {
+			entityCache.put(new InternalNode(id));
+		}
+
+		Assert.assertTrue(entityCache.remove(ids[0]));
+		Assert.assertFalse(entityCache.remove(ids[0]));
+
+		Assert.assertNull(entityCache.get(ids[0]));
+		Assert.assertEquals(ids[3], entityCache.get(ids[3]).id());
+
+		Assert.assertTrue(entityCache.remove(ids[2]));
+
+		Assert.assertNull(entityCache.get(ids[2]));
+		Assert.assertEquals(ids[1], entityCache.get(ids[1]).id());
+		Assert.assertEquals(ids[3], entityCache.get(ids[3]).id());
+
+		Assert.assertEquals(2, entityCache.getSize());
+	}
+
+	@Test
+	public void testRemoveWrappingAroundTableEnd() {
+		EntityCache<Node> entityCache = new EntityCache<>(6);
+
+		long[] ids = _getIds(3, 7, 8);
+		long[] otherIds = _getIds(1, 0, 8);
+
+		for (long id : ids) {
+			entityCache.put(new InternalNode(id));
+		}
+
+		entityCache.put(new InternalNode(otherIds[0]));
+
+		for (long id : ids) {
+			Assert.assertEquals(id, entityCache.get(id).id());
+		}
+
+		Assert.assertEquals(otherIds[0], entityCache.get(otherIds[0]).id());
+
+		Assert.assertTrue(entityCache.remove(ids[0]));
+
+		Assert.assertNull(entityCache.get(ids[0]));
+		Assert.assertEquals(ids[1], entityCache.get(ids[1]).id());
+		Assert.assertEquals(ids[2], entityCache.get(ids[2]).id());
+		Assert.assertEquals(otherIds[0], entityCache.get(otherIds[0]).id());
+
+		Assert.assertTrue(entityCache.remove(ids[1]));
+		Assert.assertTrue(entityCache.remove(otherIds[0]));
+
+		Assert.assertEquals(ids[2], entityCache.get(ids[2]).id());
+		Assert.assertEquals(1, entityCache.getSize());
+	}
+
+	/**
+	 * Returns ids which have the same home slot in a table of the given capacity, using the same hash as the cache.
+	 */
+	private long[] _getIds(int count, int home, int capacity) {
+		long[] ids = new long[count];
+
+		int shift = 64 - Integer.numberOfTrailingZeros(capacity);
+
+		for (long id = 0, i = 0; i < count; id++) {
+			if ((int)((id * 0x9E3779B97F4A7C15L) >>> shift) == home) {
+				ids[(int)i++] = id;
+			}
+		}
+
+		return ids;
+	}
+
+}
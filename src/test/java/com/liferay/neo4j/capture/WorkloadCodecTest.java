@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.capture;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.neo4j.driver.v1.Values;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+/**
+ * @author Mate Thurzo
+ */
+public class WorkloadCodecTest {
+
+	@Test
+	public void testDecodeValueOfDriverValue() {
+		Assert.assertEquals(Arrays.asList(1L, 2L), _roundTrip(Values.value(Arrays.asList(1, 2))));
+		Assert.assertEquals("a", _roundTrip(Values.value("a")));
+		Assert.assertNull(_roundTrip(Values.NULL));
+	}
+
+	@Test
+	public void testDecodeValueOfPrimitiveArrays() {
+		Assert.assertEquals(Arrays.asList(1L, 2L, 3L), _roundTrip(new int[] {1, 2, 3}));
+		Assert.assertEquals(Arrays.asList(1L, 2L), _roundTrip(new long[] {1, 2}));
+		Assert.assertEquals(Arrays.asList(0.5, 1.5), _roundTrip(new double[] {0.5, 1.5}));
+		Assert.assertEquals(Arrays.asList(true, false), _roundTrip(new boolean[] {true, false}));
+		Assert.assertEquals("ab", _roundTrip(new char[] {'a', 'b'}));
+		Assert.assertArrayEquals(new byte[] {1, 2}, (byte[])_roundTrip(new byte[] {1, 2}));
+	}
+
+	@Test
+	public void testDecodeValueOfScalars() {
+		Assert.assertEquals(-5L, _roundTrip(-5));
+		Assert.assertEquals("x", _roundTrip('x'));
+		Assert.assertEquals(Collections.singletonMap("k", "v"), _roundTrip(Collections.singletonMap("k", "v")));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWriteValueRejectsUnsupportedTypes() {
+		new WorkloadCodec.Encoder().writeValue(new Date());
+	}
+
+	private static Object _roundTrip(Object value) {
+		WorkloadCodec.Encoder encoder = new WorkloadCodec.Encoder();
+
+		encoder.writeValue(value);
+
+		return WorkloadCodec.decodeValue(ByteBuffer.wrap(encoder.getBytes(), 0, encoder.getSize()));
+	}
+
+}
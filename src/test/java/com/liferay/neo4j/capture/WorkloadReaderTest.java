@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.capture;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.driver.v1.Statement;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Mate Thurzo
+ */
+public class WorkloadReaderTest {
+
+	@Test
+	public void testReadRecordedWorkload() throws IOException {
+		Path path = temporaryFolder.getRoot().toPath().resolve("capture.log");
+
+		WorkloadRecorder workloadRecorder = new WorkloadRecorder(path);
+
+		workloadRecorder.begin(
+			WorkloadRecordType.IMMEDIATE, "MATCH (n) WHERE n.name = $name RETURN n",
+			Collections.singletonMap("name", "test")).complete();
+
+		WorkloadRecorder.Capture capture = workloadRecorder.beginBatch(
+			Arrays.asList("CREATE (n)", "CREATE (m)"), Arrays.asList(null, Collections.singletonMap("x", 1L)));
+
+		capture.fail();
+		capture.complete();
+
+		workloadRecorder.close();
+
+		workloadRecorder.begin(WorkloadRecordType.STREAMED, "MATCH (n) RETURN n", null).complete();
+
+		Assert.assertEquals(2, workloadRecorder.getRecordCount());
+		Assert.assertEquals(0, workloadRecorder.getDroppedCount());
+		Assert.assertEquals(0, workloadRecorder.getErrorCount());
+
+		try (WorkloadReader workloadReader = new WorkloadReader(path)) {
+			List<WorkloadRecord> workloadRecords = workloadReader.readAll();
+
+			Assert.assertEquals(2, workloadRecords.size());
+
+			WorkloadRecord workloadRecord = workloadRecords.get(0);
+
+			Assert.assertEquals(WorkloadRecordType.IMMEDIATE, workloadRecord.getType());
+			Assert.assertFalse(workloadRecord.isFailed());
+			Assert.assertEquals(Thread.currentThread().getId(), workloadRecord.getThreadId());
+
+			Statement statement = workloadRecord.getStatements().get(0);
+
+			Assert.assertEquals("MATCH (n) WHERE n.name = $name RETURN n", statement.text());
+			Assert.assertEquals("test", statement.parameters().get("name").asString());
+
+			workloadRecord = workloadRecords.get(1);
+
+			Assert.assertEquals(WorkloadRecordType.WRITE_BATCH, workloadRecord.getType());
+			Assert.assertTrue(workloadRecord.isFailed());
+			Assert.assertEquals(2, workloadRecord.getStatements().size());
+			Assert.assertEquals("CREATE (m)", workloadRecord.getStatements().get(1).text());
+			Assert.assertEquals(1L, workloadRecord.getStatements().get(1).parameters().get("x").asLong());
+		}
+	}
+
+	@Test
+	public void testReadRejectsUnknownRecordType() throws IOException {
+		WorkloadCodec.Encoder encoder = new WorkloadCodec.Encoder();
+
+		encoder.writeInt(WorkloadCodec.MAGIC);
+		encoder.writeByte(WorkloadCodec.VERSION);
+		encoder.writeLong(0);
+
+		encoder.writeInt(7);
+		encoder.writeByte(WorkloadRecordType.values().length);
+		encoder.writeByte(0);
+
+		for (int i = 0; i < 5; i++) {
+			encoder.writeVarInt(0);
+		}
+
+		Path path = temporaryFolder.newFile().toPath();
+
+		Files.write(path, Arrays.copyOf(encoder.getBytes(), encoder.getSize()));
+
+		try (WorkloadReader workloadReader = new WorkloadReader(path)) {
+			workloadReader.read();
+
+			Assert.fail();
+		}
+		catch (IOException ioe) {
+			Assert.assertEquals("Malformed workload capture record", ioe.getMessage());
+		}
+	}
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+}
@@ -0,0 +1,316 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.limiter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Mate Thurzo
+ */
+public class ConcurrencyLimiterTest {
+
+	@Test
+	public void testAcquireFailsFastOverLimit() {
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(1, 1, 1, _HOUR, 0.5, true, 0, 0);
+
+		concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+		try {
+			concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+			Assert.fail();
+		}
+		catch (ConcurrencyLimitExceededException clee) {
+		}
+
+		Assert.assertEquals(1, concurrencyLimiter.getInFlight());
+		Assert.assertEquals(1, concurrencyLimiter.getRejectedCount());
+	}
+
+	@Test
+	public void testAcquireTimesOutInQueue() {
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(1, 1, 1, _HOUR, 0.5, false, 10, 0);
+
+		concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+		try {
+			concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+			Assert.fail();
+		}
+		catch (ConcurrencyLimitExceededException clee) {
+		}
+
+		Assert.assertEquals(0, concurrencyLimiter.getQueueDepth());
+		Assert.assertEquals(1, concurrencyLimiter.getRejectedCount());
+	}
+
+	@Test
+	public void testAcquireWhileHoldingPermit() throws InterruptedException {
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(1, 1, 1, _HOUR, 0.5, true, 0, 1);
+
+		ConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+		permit.hold();
+
+		ConcurrencyLimiter.Permit nestedPermit = concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+		Assert.assertEquals(1, concurrencyLimiter.getInFlight());
+		Assert.assertEquals(1, concurrencyLimiter.getBulkheadInFlight(_BULKHEAD_NAME));
+
+		nestedPermit.drop();
+
+		Assert.assertEquals(1, concurrencyLimiter.getLimit());
+		Assert.assertEquals(1, concurrencyLimiter.getInFlight());
+
+		// Other threads still count against the limit
+
+		BlockingQueue<RuntimeException> failures = new ArrayBlockingQueue<>(1);
+
+		Thread thread = new Thread(
+			() -> {
+				try {
+					concurrencyLimiter.acquire(_BULKHEAD_NAME);
+				}
+				catch (RuntimeException re) {
+					failures.add(re);
+				}
+			});
+
+		thread.start();
+		thread.join();
+
+		Assert.assertTrue(failures.poll() instanceof ConcurrencyLimitExceededException);
+
+		permit.release();
+
+		concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+		try {
+			concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+			Assert.fail();
+		}
+		catch (ConcurrencyLimitExceededException clee) {
+		}
+	}
+
+	@Test
+	public void testBulkheadIsReleasedWhenAcquireFails() {
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(1, 1, 1, _HOUR, 0.5, true, 0, 2);
+
+		ConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+		try {
+			concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+			Assert.fail();
+		}
+		catch (ConcurrencyLimitExceededException clee) {
+		}
+
+		Assert.assertEquals(1, concurrencyLimiter.getBulkheadInFlight(_BULKHEAD_NAME));
+
+		permit.release();
+
+		Assert.assertEquals(0, concurrencyLimiter.getBulkheadInFlight(_BULKHEAD_NAME));
+	}
+
+	@Test
+	public void testBulkheadLimitsSingleBundle() {
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(10, 1, 10, _HOUR, 0.5, true, 0, 1);
+
+		concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+		try {
+			concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+			Assert.fail();
+		}
+		catch (ConcurrencyLimitExceededException clee) {
+		}
+
+		concurrencyLimiter.acquire("other");
+
+		Assert.assertEquals(2, concurrencyLimiter.getInFlight());
+		Assert.assertEquals(1, concurrencyLimiter.getBulkheadInFlight(_BULKHEAD_NAME));
+		Assert.assertEquals(1, concurrencyLimiter.getBulkheadInFlight("other"));
+	}
+
+	@Test
+	public void testConstructorRejectsInvalidBackoffRatio() {
+		for (double backoffRatio : new double[] {-0.5, 0, 1, 1.5, Double.NaN}) {
+			try {
+				new ConcurrencyLimiter(1, 1, 1, _HOUR, backoffRatio, true, 0, 0);
+
+				Assert.fail();
+			}
+			catch (IllegalArgumentException iae) {
+			}
+		}
+	}
+
+	@Test
+	public void testDropDecreasesLimitOncePerOverload() {
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(10, 1, 20, _HOUR, 0.5, true, 0, 0);
+
+		ConcurrencyLimiter.Permit permit1 = concurrencyLimiter.acquire(_BULKHEAD_NAME);
+		ConcurrencyLimiter.Permit permit2 = concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+		permit1.drop();
+
+		Assert.assertEquals(5, concurrencyLimiter.getLimit());
+
+		// The second permit was admitted before the limit was decreased, so it belongs to the same overload
+
+		permit2.drop();
+
+		Assert.assertEquals(5, concurrencyLimiter.getLimit());
+
+		concurrencyLimiter.acquire(_BULKHEAD_NAME).drop();
+
+		Assert.assertEquals(2, concurrencyLimiter.getLimit());
+
+		concurrencyLimiter.acquire(_BULKHEAD_NAME).drop();
+
+		Assert.assertEquals(1, concurrencyLimiter.getLimit());
+
+		concurrencyLimiter.acquire(_BULKHEAD_NAME).drop();
+
+		Assert.assertEquals(1, concurrencyLimiter.getLimit());
+		Assert.assertEquals(0, concurrencyLimiter.getInFlight());
+	}
+
+	@Test
+	public void testLatencyOverThresholdDecreasesLimit() throws InterruptedException {
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(10, 1, 20, 0, 0.5, true, 0, 0);
+
+		ConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+		Thread.sleep(1);
+
+		permit.release();
+
+		Assert.assertEquals(5, concurrencyLimiter.getLimit());
+	}
+
+	@Test
+	public void testQueuedCallerIsSignalledOnRelease() throws InterruptedException {
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(1, 1, 1, _HOUR, 0.5, false, _HOUR, 0);
+
+		ConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+		BlockingQueue<ConcurrencyLimiter.Permit> permits = new ArrayBlockingQueue<>(1);
+
+		Thread thread = new Thread(() -> permits.add(concurrencyLimiter.acquire(_BULKHEAD_NAME)));
+
+		thread.start();
+
+		while (concurrencyLimiter.getQueueDepth() == 0) {
+			Thread.sleep(1);
+		}
+
+		Assert.assertTrue(permits.isEmpty());
+
+		permit.release();
+
+		Assert.assertNotNull(permits.poll(10, TimeUnit.SECONDS));
+		Assert.assertEquals(0, concurrencyLimiter.getQueueDepth());
+		Assert.assertEquals(1, concurrencyLimiter.getInFlight());
+
+		thread.join();
+	}
+
+	@Test
+	public void testQueueDepthIncludesBulkheadWaiters() throws InterruptedException {
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(10, 1, 10, _HOUR, 0.5, false, _HOUR, 1);
+
+		ConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+		BlockingQueue<ConcurrencyLimiter.Permit> permits = new ArrayBlockingQueue<>(1);
+
+		Thread thread = new Thread(() -> permits.add(concurrencyLimiter.acquire(_BULKHEAD_NAME)));
+
+		thread.start();
+
+		while (concurrencyLimiter.getQueueDepth() == 0) {
+			Thread.sleep(1);
+		}
+
+		Assert.assertEquals(1, concurrencyLimiter.getQueueDepth());
+
+		permit.release();
+
+		Assert.assertNotNull(permits.poll(10, TimeUnit.SECONDS));
+		Assert.assertEquals(0, concurrencyLimiter.getQueueDepth());
+
+		thread.join();
+	}
+
+	@Test
+	public void testReleaseIncreasesLimitAtHalfUtilization() {
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(4, 1, 5, _HOUR, 0.5, true, 0, 0);
+
+		concurrencyLimiter.acquire(_BULKHEAD_NAME).release();
+
+		Assert.assertEquals(4, concurrencyLimiter.getLimit());
+
+		ConcurrencyLimiter.Permit permit1 = concurrencyLimiter.acquire(_BULKHEAD_NAME);
+		ConcurrencyLimiter.Permit permit2 = concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+		permit1.release();
+
+		Assert.assertEquals(5, concurrencyLimiter.getLimit());
+
+		permit2.release();
+
+		Assert.assertEquals(5, concurrencyLimiter.getLimit());
+
+		ConcurrencyLimiter.Permit[] permits = new ConcurrencyLimiter.Permit[5];
+
+		for (int i = 0; i < permits.length; i++) {
+			permits[i] = concurrencyLimiter.acquire(_BULKHEAD_NAME);
+		}
+
+		permits[0].release();
+
+		Assert.assertEquals(5, concurrencyLimiter.getLimit());
+	}
+
+	@Test
+	public void testReleaseIsIdempotent() {
+		ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(10, 1, 20, _HOUR, 0.5, true, 0, 1);
+
+		ConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire(_BULKHEAD_NAME);
+
+		permit.release();
+		permit.release();
+		permit.drop();
+
+		Assert.assertEquals(0, concurrencyLimiter.getInFlight());
+		Assert.assertEquals(0, concurrencyLimiter.getBulkheadInFlight(_BULKHEAD_NAME));
+		Assert.assertEquals(10, concurrencyLimiter.getLimit());
+	}
+
+	private static final String _BULKHEAD_NAME = "bundle";
+
+	private static final long _HOUR = TimeUnit.HOURS.toMillis(1);
+
+}
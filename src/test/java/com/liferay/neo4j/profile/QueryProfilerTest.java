@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.profile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Mate Thurzo
+ */
+public class QueryProfilerTest {
+
+	@Test
+	public void testFingerprintCollapsesLiteralLists() {
+		Assert.assertEquals(
+			"MATCH (n) WHERE n.id IN [?] RETURN n",
+			QueryProfiler.fingerprint("MATCH (n) WHERE n.id IN [1, 2, 3] RETURN n"));
+		Assert.assertEquals("RETURN [?]", QueryProfiler.fingerprint("RETURN ['a', \"b\",'c']"));
+		Assert.assertEquals("RETURN [ ? ]", QueryProfiler.fingerprint("RETURN [ 1 , 2 ]"));
+	}
+
+	@Test
+	public void testFingerprintKeepsArgumentLiterals() {
+		Assert.assertEquals("RETURN range(?, ?)", QueryProfiler.fingerprint("RETURN range(1, 10)"));
+		Assert.assertEquals(
+			"RETURN substring(?, ?, ?)", QueryProfiler.fingerprint("RETURN substring('abc', 0, 2)"));
+		Assert.assertEquals("RETURN {a: ?, b: ?}", QueryProfiler.fingerprint("RETURN {a: 1, b: 'x'}"));
+	}
+
+	@Test
+	public void testFingerprintKeepsListsWithExpressions() {
+		Assert.assertEquals("RETURN [?, n.x, ?]", QueryProfiler.fingerprint("RETURN [1, n.x, 2]"));
+		Assert.assertEquals("RETURN [size([?]), ?]", QueryProfiler.fingerprint("RETURN [size([1, 2]), 3]"));
+		Assert.assertEquals("RETURN [range(?, ?)]", QueryProfiler.fingerprint("RETURN [range(1, 10)]"));
+	}
+
+	@Test
+	public void testFingerprintKeepsReturnItems() {
+		Assert.assertEquals(
+			"RETURN n.x - ?, n.y-?, -?, ?", QueryProfiler.fingerprint("RETURN n.x - 1, n.y-1, -5, 1.5e-3"));
+		Assert.assertEquals("RETURN ?, ?, ?", QueryProfiler.fingerprint("RETURN 1, 2, 3"));
+	}
+
+	@Test
+	public void testFingerprintRemovesCommentsAndWhitespace() {
+		Assert.assertEquals(
+			"MATCH (n:Label1) RETURN n.name = ?",
+			QueryProfiler.fingerprint("MATCH  (n:Label1) // comment\n\tRETURN /* inline */ n.name = 'x' "));
+		Assert.assertEquals("MATCH (`n 1`) RETURN ?", QueryProfiler.fingerprint("MATCH (`n 1`) RETURN 'a, b'"));
+	}
+
+	@Test
+	public void testSampleSkipsUnprofilableStatementsAfterComments() {
+		QueryProfiler queryProfiler = new QueryProfiler(1, 10);
+
+		Assert.assertFalse(queryProfiler.sample("// index\nCREATE INDEX ON :Label1(name)"));
+		Assert.assertFalse(queryProfiler.sample(" /* plan */ explain MATCH (n) RETURN n"));
+		Assert.assertFalse(queryProfiler.sample("/* a */ // b\n /* c */ PROFILE MATCH (n) RETURN n"));
+		Assert.assertTrue(queryProfiler.sample("/* CREATE INDEX */ MATCH (n) RETURN n"));
+		Assert.assertTrue(queryProfiler.sample("// EXPLAIN\nMATCH (n) RETURN n"));
+
+		Assert.assertEquals(2, queryProfiler.getSampledCount());
+	}
+
+}
@@ -0,0 +1,288 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.result;
+
+import com.liferay.neo4j.GraphDatabase;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.exceptions.ClientException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * @author Mate Thurzo
+ */
+public class GraphDatabaseResultListenerTest {
+
+	@BeforeClass
+	public static void setUpClass() throws IOException {
+		Map<String, Object> properties = new HashMap<>();
+
+		properties.put("embeddedDatabasePath", temporaryFolder.newFolder().getPath());
+		properties.put("embeddedExecutionEnabled", "true");
+
+		_graphDatabase = new GraphDatabase();
+
+		_graphDatabase.activate(properties);
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		_graphDatabase.deactivate();
+	}
+
+	@Test
+	public void testAbortFromReaperThread() throws InterruptedException {
+		RecordingListener recordingListener = new RecordingListener(0);
+
+		_graphDatabase.addResultListener(recordingListener);
+
+		GraphDatabaseResult graphDatabaseResult;
+
+		try {
+			graphDatabaseResult = _graphDatabase.runStatement("UNWIND range(1, 1000000) AS i RETURN i", 100);
+		}
+		finally {
+			_graphDatabase.removeResultListener(recordingListener);
+		}
+
+		Iterator<Record> iterator = graphDatabaseResult.recordStream().iterator();
+
+		Assert.assertEquals(1, iterator.next().get(0).asInt());
+
+		recordingListener.awaitType(GraphDatabaseResultEventType.CLOSED);
+
+		Assert.assertEquals(
+			Arrays.asList(
+				GraphDatabaseResultEventType.STARTED, GraphDatabaseResultEventType.FIRST_RECORD,
+				GraphDatabaseResultEventType.FAILED, GraphDatabaseResultEventType.CLOSED),
+			recordingListener.getTypes());
+
+		// The events of the abort are delivered on the reaper thread, while the caller is still iterating
+
+		Assert.assertEquals("Neo4j Statement Reaper", recordingListener.getThreadName(2));
+		Assert.assertEquals("Neo4j Statement Reaper", recordingListener.getThreadName(3));
+
+		ClientException clientException = (ClientException)recordingListener.getEvent(2).getThrowable();
+
+		Assert.assertEquals("Neo.ClientError.Transaction.TransactionTimedOut", clientException.code());
+
+		try {
+			while (iterator.hasNext()) {
+				iterator.next();
+			}
+
+			Assert.fail();
+		}
+		catch (ClientException ce) {
+			Assert.assertEquals(clientException.code(), ce.code());
+		}
+
+		Assert.assertEquals(4, recordingListener.getEvents().size());
+	}
+
+	@Test
+	public void testEventOrder() {
+		RecordingListener recordingListener = new RecordingListener(2);
+
+		GraphDatabaseResult graphDatabaseResult = _graphDatabase.runStatement("UNWIND range(1, 5) AS i RETURN i");
+
+		graphDatabaseResult.addListener(recordingListener);
+
+		Assert.assertEquals(5, graphDatabaseResult.recordStream().count());
+
+		Assert.assertEquals(
+			Arrays.asList(
+				GraphDatabaseResultEventType.STARTED, GraphDatabaseResultEventType.FIRST_RECORD,
+				GraphDatabaseResultEventType.RECORDS, GraphDatabaseResultEventType.RECORDS,
+				GraphDatabaseResultEventType.EXHAUSTED, GraphDatabaseResultEventType.CLOSED),
+			recordingListener.getTypes());
+
+		Assert.assertEquals(1, recordingListener.getEvent(1).getRecordCount());
+		Assert.assertEquals(2, recordingListener.getEvent(2).getRecordCount());
+		Assert.assertEquals(4, recordingListener.getEvent(3).getRecordCount());
+		Assert.assertEquals(5, recordingListener.getEvent(4).getRecordCount());
+		Assert.assertNotNull(recordingListener.getEvent(4).getResultSummary());
+
+		for (GraphDatabaseResultEvent event : recordingListener.getEvents()) {
+			Assert.assertEquals(graphDatabaseResult.getResultUuid(), event.getResultUuid());
+		}
+	}
+
+	@Test
+	public void testEventOrderOfFailedResult() {
+		RecordingListener recordingListener = new RecordingListener(0);
+
+		GraphDatabaseResult graphDatabaseResult = _graphDatabase.runStatement(
+			"UNWIND [1, 0] AS i RETURN 1 / i AS x");
+
+		graphDatabaseResult.addListener(recordingListener);
+
+		try {
+			graphDatabaseResult.recordStream().count();
+
+			Assert.fail();
+		}
+		catch (RuntimeException re) {
+			Assert.assertSame(re, graphDatabaseResult.getFailure());
+		}
+
+		Assert.assertEquals(
+			Arrays.asList(
+				GraphDatabaseResultEventType.STARTED, GraphDatabaseResultEventType.FIRST_RECORD,
+				GraphDatabaseResultEventType.FAILED, GraphDatabaseResultEventType.CLOSED),
+			recordingListener.getTypes());
+
+		Assert.assertSame(graphDatabaseResult.getFailure(), recordingListener.getEvent(2).getThrowable());
+	}
+
+	@Test
+	public void testImmediateResult() {
+		RecordingListener recordingListener = new RecordingListener(1);
+
+		_graphDatabase.addResultListener(recordingListener);
+
+		GraphDatabaseResult graphDatabaseResult;
+
+		try {
+			graphDatabaseResult = _graphDatabase.runImmediateStatement("UNWIND range(1, 3) AS i RETURN i");
+		}
+		finally {
+			_graphDatabase.removeResultListener(recordingListener);
+		}
+
+		Assert.assertEquals(
+			Arrays.asList(
+				GraphDatabaseResultEventType.STARTED, GraphDatabaseResultEventType.EXHAUSTED,
+				GraphDatabaseResultEventType.CLOSED),
+			recordingListener.getTypes());
+
+		// The records are buffered before they are read, so the events carry no record count
+
+		GraphDatabaseResultEvent event = recordingListener.getEvent(1);
+
+		Assert.assertEquals(0, event.getRecordCount());
+		Assert.assertNotNull(event.getResultSummary());
+
+		Assert.assertEquals(3, graphDatabaseResult.getStatementResult().list().size());
+
+		Assert.assertEquals(3, recordingListener.getEvents().size());
+	}
+
+	@Test
+	public void testNoEventsWithoutListeners() {
+		RecordingListener recordingListener = new RecordingListener(1);
+
+		_graphDatabase.addResultListener(recordingListener);
+
+		GraphDatabaseResult graphDatabaseResult = _graphDatabase.runStatement("RETURN 1");
+
+		_graphDatabase.removeResultListener(recordingListener);
+
+		// Results created after the listener was removed deliver no events to it
+
+		Assert.assertEquals(1, _graphDatabase.runStatement("RETURN 1").recordStream().count());
+		Assert.assertEquals(1, _graphDatabase.runImmediateStatement("RETURN 1").getStatementResult().list().size());
+
+		Assert.assertEquals(
+			Collections.singletonList(GraphDatabaseResultEventType.STARTED), recordingListener.getTypes());
+
+		// Results created before keep delivering their events
+
+		Assert.assertEquals(1, graphDatabaseResult.recordStream().count());
+
+		Assert.assertEquals(
+			Arrays.asList(
+				GraphDatabaseResultEventType.STARTED, GraphDatabaseResultEventType.FIRST_RECORD,
+				GraphDatabaseResultEventType.RECORDS, GraphDatabaseResultEventType.EXHAUSTED,
+				GraphDatabaseResultEventType.CLOSED),
+			recordingListener.getTypes());
+	}
+
+	@ClassRule
+	public static final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private static GraphDatabase _graphDatabase;
+
+	private static class RecordingListener implements GraphDatabaseResultListener {
+
+		public void awaitType(GraphDatabaseResultEventType type) throws InterruptedException {
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+			while (!getTypes().contains(type)) {
+				if (System.nanoTime() > deadline) {
+					Assert.fail("No " + type + " event within 10 seconds: " + getTypes());
+				}
+
+				Thread.sleep(10);
+			}
+		}
+
+		public GraphDatabaseResultEvent getEvent(int index) {
+			return _events.get(index);
+		}
+
+		public List<GraphDatabaseResultEvent> getEvents() {
+			return new ArrayList<>(_events);
+		}
+
+		@Override
+		public int getRecordInterval() {
+			return _recordInterval;
+		}
+
+		public String getThreadName(int index) {
+			return _threadNames.get(index);
+		}
+
+		public List<GraphDatabaseResultEventType> getTypes() {
+			return _events.stream().map(GraphDatabaseResultEvent::getType).collect(Collectors.toList());
+		}
+
+		@Override
+		public synchronized void onEvent(GraphDatabaseResultEvent event) {
+			_events.add(event);
+
+			Thread thread = Thread.currentThread();
+
+			_threadNames.add(thread.getName());
+		}
+
+		private RecordingListener(int recordInterval) {
+			_recordInterval = recordInterval;
+		}
+
+		private final List<GraphDatabaseResultEvent> _events = new CopyOnWriteArrayList<>();
+		private final int _recordInterval;
+		private final List<String> _threadNames = new CopyOnWriteArrayList<>();
+
+	}
+
+}
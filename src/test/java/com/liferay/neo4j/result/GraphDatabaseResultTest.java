@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.result;
+
+import com.liferay.neo4j.GraphDatabase;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.StatementResult;
+import org.neo4j.driver.v1.exceptions.ClientException;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
+/**
+ * @author Mate Thurzo
+ */
+public class GraphDatabaseResultTest {
+
+	@BeforeClass
+	public static void setUpClass() throws IOException {
+		Map<String, Object> properties = new HashMap<>();
+
+		properties.put("embeddedDatabasePath", temporaryFolder.newFolder().getPath());
+		properties.put("embeddedExecutionEnabled", "true");
+		properties.put("resultHeapBudget", "1024");
+		properties.put("resultMaxRecords", "1000");
+
+		_graphDatabase = new GraphDatabase();
+
+		_graphDatabase.activate(properties);
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		_graphDatabase.deactivate();
+	}
+
+	@Test
+	public void testImmediateResultExceedingMaxRecords() {
+		try {
+			_graphDatabase.runImmediateStatement("UNWIND range(1, 1001) AS i CREATE (n:Label1) RETURN n");
+
+			Assert.fail();
+		}
+		catch (ResultSizeExceededException rsee) {
+		}
+
+		// The records are not buffered beyond the maximum, and the transaction of the statement is rolled back
+
+		GraphDatabaseResult graphDatabaseResult = _graphDatabase.runImmediateStatement(
+			"MATCH (n:Label1) RETURN count(n)");
+
+		Assert.assertEquals(0, graphDatabaseResult.list().get(0).get(0).asLong());
+
+		graphDatabaseResult.releaseList();
+
+		Assert.assertEquals(0, _graphDatabase.getResultHeapBudget().getReserved());
+	}
+
+	@Test
+	public void testImmediateResultIsSpilledOverHeapBudget() {
+		HeapBudget heapBudget = _graphDatabase.getResultHeapBudget();
+
+		GraphDatabaseResult graphDatabaseResult = _graphDatabase.runImmediateStatement(
+			"UNWIND range(1, 1000) AS i RETURN i");
+
+		// The records were spilled while they were buffered, so listing them does not read them again
+
+		Assert.assertTrue(heapBudget.getReserved() > 0);
+		Assert.assertTrue(heapBudget.getReserved() <= heapBudget.getCapacity());
+
+		List<Record> records = graphDatabaseResult.list();
+
+		Assert.assertTrue(records instanceof SpilledRecordList);
+		Assert.assertEquals(1000, records.size());
+
+		for (int i = 0; i < records.size(); i++) {
+			Record record = records.get(i);
+
+			Assert.assertEquals(i + 1, record.get(0).asInt());
+		}
+
+		Assert.assertNotNull(graphDatabaseResult.getStatementResult().summary());
+
+		graphDatabaseResult.releaseList();
+
+		Assert.assertEquals(0, heapBudget.getReserved());
+	}
+
+	@Test
+	public void testReleaseHandlerRunsAfterRetrieval() throws Exception {
+		CountDownLatch retrievingLatch = new CountDownLatch(1);
+		CountDownLatch retrievedLatch = new CountDownLatch(1);
+
+		GraphDatabaseResult graphDatabaseResult = new GraphDatabaseResult(
+			_newStatementResult(
+				() -> {
+					retrievingLatch.countDown();
+
+					try {
+						retrievedLatch.await();
+					}
+					catch (InterruptedException ie) {
+						throw new IllegalStateException(ie);
+					}
+				}));
+
+		FutureTask<List<Record>> futureTask = new FutureTask<>(graphDatabaseResult::list);
+
+		Thread thread = new Thread(futureTask, "Reader");
+
+		thread.start();
+
+		retrievingLatch.await();
+
+		graphDatabaseResult.getAbortHandler().run();
+
+		List<String> threadNames = new CopyOnWriteArrayList<>();
+
+		Consumer<Runnable> releaseHandler = graphDatabaseResult.getReleaseHandler();
+
+		releaseHandler.accept(() -> threadNames.add(Thread.currentThread().getName()));
+
+		// The release waits for the retrieval in progress and runs on the thread retrieving the records
+
+		Assert.assertTrue(threadNames.isEmpty());
+
+		retrievedLatch.countDown();
+
+		Assert.assertTrue(futureTask.get().isEmpty());
+
+		Assert.assertEquals(Collections.singletonList("Reader"), threadNames);
+	}
+
+	@Test
+	public void testReleaseHandlerRunsWhenIdle() {
+		List<String> retrievals = new CopyOnWriteArrayList<>();
+
+		GraphDatabaseResult graphDatabaseResult = new GraphDatabaseResult(
+			_newStatementResult(() -> retrievals.add("list")));
+
+		graphDatabaseResult.getAbortHandler().run();
+
+		List<String> threadNames = new CopyOnWriteArrayList<>();
+
+		Consumer<Runnable> releaseHandler = graphDatabaseResult.getReleaseHandler();
+
+		releaseHandler.accept(() -> threadNames.add(Thread.currentThread().getName()));
+
+		Assert.assertEquals(Collections.singletonList(Thread.currentThread().getName()), threadNames);
+
+		// Retrieving the records of the aborted result fails without touching the released statement result
+
+		try {
+			graphDatabaseResult.list();
+
+			Assert.fail();
+		}
+		catch (ClientException ce) {
+			Assert.assertEquals("Neo.ClientError.Transaction.TransactionTimedOut", ce.code());
+		}
+
+		Assert.assertTrue(retrievals.isEmpty());
+	}
+
+	private static StatementResult _newStatementResult(Runnable listAction) {
+		return (StatementResult)Proxy.newProxyInstance(
+			StatementResult.class.getClassLoader(), new Class<?>[] {StatementResult.class},
+			(proxy, method, arguments) -> {
+				if (!"list".equals(method.getName())) {
+					throw new UnsupportedOperationException(method.getName());
+				}
+
+				listAction.run();
+
+				return new ArrayList<Record>();
+			});
+	}
+
+	@ClassRule
+	public static final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private static GraphDatabase _graphDatabase;
+
+}
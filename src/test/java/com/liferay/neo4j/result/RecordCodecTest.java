@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.result;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.neo4j.driver.internal.InternalNode;
+import org.neo4j.driver.internal.InternalPath;
+import org.neo4j.driver.internal.InternalRecord;
+import org.neo4j.driver.internal.InternalRelationship;
+import org.neo4j.driver.internal.value.NodeValue;
+import org.neo4j.driver.internal.value.PathValue;
+import org.neo4j.driver.internal.value.RelationshipValue;
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.Values;
+import org.neo4j.driver.v1.types.Node;
+import org.neo4j.driver.v1.types.Path;
+import org.neo4j.driver.v1.types.Relationship;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Mate Thurzo
+ */
+public class RecordCodecTest {
+
+	@Test
+	public void testDecodeOfCollections() {
+		Map<String, Object> map = new HashMap<>();
+
+		map.put("list", Arrays.asList(1L, "two", null));
+		map.put("map", Collections.singletonMap("k", 2.5));
+
+		Assert.assertEquals(map, _roundTrip(Values.value(map)).asMap());
+		Assert.assertEquals(Collections.emptyList(), _roundTrip(Values.value(Collections.emptyList())).asList());
+	}
+
+	@Test
+	public void testDecodeOfEntities() {
+		Node node = _roundTrip(new NodeValue(_newNode(1, "a"))).asNode();
+
+		Assert.assertEquals(1, node.id());
+		Assert.assertEquals(Collections.singletonList("Label"), node.labels());
+		Assert.assertEquals("a", node.get("name").asString());
+
+		Relationship relationship = _roundTrip(new RelationshipValue(_newRelationship(5, 1, 2))).asRelationship();
+
+		Assert.assertEquals(5, relationship.id());
+		Assert.assertEquals(1, relationship.startNodeId());
+		Assert.assertEquals(2, relationship.endNodeId());
+		Assert.assertEquals("KNOWS", relationship.type());
+		Assert.assertEquals(0.5, relationship.get("weight").asDouble(), 0);
+	}
+
+	@Test
+	public void testDecodeOfPath() {
+		Path path = _roundTrip(
+			new PathValue(
+				new InternalPath(
+					_newNode(1, "a"), _newRelationship(5, 1, 2), _newNode(2, "b"), _newRelationship(6, 2, 3),
+					_newNode(3, "c")))
+		).asPath();
+
+		Assert.assertEquals(2, path.length());
+
+		List<Long> nodeIds = new ArrayList<>();
+
+		path.nodes().forEach(node -> nodeIds.add(node.id()));
+
+		Assert.assertEquals(Arrays.asList(1L, 2L, 3L), nodeIds);
+
+		List<Long> relationshipIds = new ArrayList<>();
+
+		path.relationships().forEach(relationship -> relationshipIds.add(relationship.id()));
+
+		Assert.assertEquals(Arrays.asList(5L, 6L), relationshipIds);
+	}
+
+	@Test
+	public void testDecodeOfRecordWithSeveralValues() {
+		InternalRecord record = new InternalRecord(
+			Arrays.asList("a", "b", "c"), new Value[] {Values.value(1), Values.value("x"), Values.NULL});
+
+		RecordCodec.Encoder encoder = new RecordCodec.Encoder();
+
+		encoder.encode(record);
+
+		ByteBuffer byteBuffer = ByteBuffer.wrap(encoder.getBytes(), 0, encoder.getSize());
+
+		Record decodedRecord = RecordCodec.decode(record.keys(), byteBuffer);
+
+		Assert.assertEquals(record.keys(), decodedRecord.keys());
+		Assert.assertEquals(record.asMap(), decodedRecord.asMap());
+		Assert.assertFalse(byteBuffer.hasRemaining());
+	}
+
+	@Test
+	public void testDecodeOfMultiByteCharacters() {
+		String string = "\u00e1rv\u00edzt\u0171r\u0151 \ud83d\ude00";
+
+		Assert.assertEquals(string, _roundTrip(Values.value(string)).asString());
+	}
+
+	@Test
+	public void testDecodeOfScalars() {
+		Assert.assertTrue(_roundTrip(Values.value(true)).asBoolean());
+		Assert.assertFalse(_roundTrip(Values.value(false)).asBoolean());
+		Assert.assertEquals(Long.MIN_VALUE, _roundTrip(Values.value(Long.MIN_VALUE)).asLong());
+		Assert.assertEquals(-0.25, _roundTrip(Values.value(-0.25)).asDouble(), 0);
+		Assert.assertTrue(Double.isNaN(_roundTrip(Values.value(Double.NaN)).asDouble()));
+		Assert.assertEquals("", _roundTrip(Values.value("")).asString());
+		Assert.assertArrayEquals(new byte[] {1, -1}, _roundTrip(Values.value(new byte[] {1, -1})).asByteArray());
+		Assert.assertTrue(_roundTrip(Values.NULL).isNull());
+	}
+
+	private static InternalNode _newNode(long id, String name) {
+		return new InternalNode(
+			id, Collections.singletonList("Label"), Collections.singletonMap("name", Values.value(name)));
+	}
+
+	private static InternalRelationship _newRelationship(long id, long startNodeId, long endNodeId) {
+		return new InternalRelationship(
+			id, startNodeId, endNodeId, "KNOWS", Collections.singletonMap("weight", Values.value(0.5)));
+	}
+
+	private static Value _roundTrip(Value value) {
+		RecordCodec.Encoder encoder = new RecordCodec.Encoder();
+
+		encoder.encode(new InternalRecord(Collections.singletonList("v"), new Value[] {value}));
+
+		ByteBuffer byteBuffer = ByteBuffer.wrap(encoder.getBytes(), 0, encoder.getSize());
+
+		Record record = RecordCodec.decode(Collections.singletonList("v"), byteBuffer);
+
+		Assert.assertFalse(byteBuffer.hasRemaining());
+
+		return record.get(0);
+	}
+
+}
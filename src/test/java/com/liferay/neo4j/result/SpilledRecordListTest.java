@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.result;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.neo4j.driver.internal.InternalRecord;
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.Values;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Mate Thurzo
+ */
+public class SpilledRecordListTest {
+
+	@Test
+	public void testGetAcrossIndexAndRecordSegments() {
+
+		// Every record takes 8 bytes, a 2 character string and a boolean, so 4 records fill a 32 byte segment exactly
+		// and every index segment holds the offsets of 4 records
+
+		List<Record> records = new ArrayList<>();
+
+		for (int i = 0; i < 600; i++) {
+			String name = new String(new char[] {(char)('a' + (i % 26)), (char)('a' + (i / 26))});
+
+			records.add(new InternalRecord(_KEYS, new Value[] {Values.value(name), Values.value((i % 2) == 0)}));
+		}
+
+		List<Record> list = SpilledRecordList.materialize(
+			records.iterator(), _KEYS, new HeapBudget(0), 0, this::_fail, 32);
+
+		Assert.assertTrue(list instanceof SpilledRecordList);
+
+		_assertRecords(records, list);
+	}
+
+	@Test
+	public void testGetOfRecordsLargerThanSegment() {
+		List<Record> records = new ArrayList<>();
+
+		for (int i = 10; i >= 0; i--) {
+			records.add(_newRecord(i, new String(new char[i * 10]).replace('\0', 'x')));
+		}
+
+		List<Record> list = SpilledRecordList.materialize(
+			records.iterator(), _KEYS, new HeapBudget(0), 0, this::_fail, 16);
+
+		_assertRecords(records, list);
+	}
+
+	@Test
+	public void testGetOutOfBounds() {
+		List<Record> list = SpilledRecordList.materialize(
+			_newRecords(3, "a").iterator(), _KEYS, new HeapBudget(0), 0, this::_fail);
+
+		for (int index : new int[] {-1, 3}) {
+			try {
+				list.get(index);
+
+				Assert.fail();
+			}
+			catch (IndexOutOfBoundsException ioobe) {
+			}
+		}
+	}
+
+	@Test
+	public void testMaterializeKeepsRecordsOnHeapWithinBudget() {
+		List<Record> records = _newRecords(10, "a");
+
+		HeapBudget heapBudget = new HeapBudget(Long.MAX_VALUE);
+
+		List<HeapBudget.Reservation> reservations = new ArrayList<>();
+
+		List<Record> list = SpilledRecordList.materialize(
+			records.iterator(), _KEYS, heapBudget, 0, reservations::add);
+
+		Assert.assertTrue(list instanceof ArrayList);
+		Assert.assertEquals(records, list);
+		Assert.assertEquals(1, reservations.size());
+
+		long reserved = heapBudget.getReserved();
+
+		Assert.assertTrue(reserved > 0);
+
+		reservations.get(0).release();
+		reservations.get(0).release();
+
+		Assert.assertEquals(0, heapBudget.getReserved());
+	}
+
+	@Test
+	public void testMaterializeSpillsRecordsOverBudget() {
+		List<Record> records = _newRecords(100, "a");
+
+		long recordSize = HeapSizeEstimator.estimateSize(records.get(0));
+
+		HeapBudget heapBudget = new HeapBudget(recordSize * 10);
+
+		List<HeapBudget.Reservation> reservations = new ArrayList<>();
+
+		List<Record> list = SpilledRecordList.materialize(
+			records.iterator(), _KEYS, heapBudget, 0, reservations::add);
+
+		Assert.assertTrue(list instanceof SpilledRecordList);
+		Assert.assertEquals(recordSize * 10, heapBudget.getReserved());
+
+		_assertRecords(records, list);
+
+		try {
+			list.add(records.get(0));
+
+			Assert.fail();
+		}
+		catch (UnsupportedOperationException uoe) {
+		}
+
+		// Nothing fits the budget while the first list holds it
+
+		Assert.assertFalse(heapBudget.tryReserve(1));
+
+		reservations.get(0).release();
+
+		Assert.assertEquals(0, heapBudget.getReserved());
+		Assert.assertTrue(heapBudget.tryReserve(recordSize * 10));
+		Assert.assertFalse(heapBudget.tryReserve(1));
+	}
+
+	@Test
+	public void testMaterializeWithoutBudget() {
+		List<Record> records = _newRecords(10, "a");
+
+		List<Record> list = SpilledRecordList.materialize(records.iterator(), _KEYS, null, 0, this::_fail);
+
+		Assert.assertTrue(list instanceof ArrayList);
+		Assert.assertEquals(records, list);
+	}
+
+	@Test
+	public void testMaxRecords() {
+		Assert.assertEquals(
+			5,
+			SpilledRecordList.materialize(_newRecords(5, "a").iterator(), _KEYS, null, 5, this::_fail).size());
+
+		HeapBudget heapBudget = new HeapBudget(HeapSizeEstimator.estimateSize(_newRecord(0, "a")) * 2);
+
+		try {
+			SpilledRecordList.materialize(_newRecords(6, "a").iterator(), _KEYS, heapBudget, 5, this::_fail);
+
+			Assert.fail();
+		}
+		catch (ResultSizeExceededException rsee) {
+		}
+
+		Assert.assertEquals(0, heapBudget.getReserved());
+	}
+
+	@Test
+	public void testSpillFilesAreDeleted() throws IOException {
+		int spillFileCount = _countSpillFiles();
+
+		List<Record> list = SpilledRecordList.materialize(
+			_newRecords(100, "a").iterator(), _KEYS, new HeapBudget(0), 0, this::_fail);
+
+		Assert.assertEquals(100, list.size());
+		Assert.assertEquals(spillFileCount, _countSpillFiles());
+
+		try {
+			SpilledRecordList.materialize(_newRecords(100, "a").iterator(), _KEYS, new HeapBudget(0), 50, this::_fail);
+
+			Assert.fail();
+		}
+		catch (ResultSizeExceededException rsee) {
+		}
+
+		Assert.assertEquals(spillFileCount, _countSpillFiles());
+	}
+
+	private static void _assertRecords(List<Record> expectedRecords, List<Record> records) {
+		Assert.assertEquals(expectedRecords.size(), records.size());
+
+		for (int i = records.size() - 1; i >= 0; i--) {
+			Record record = records.get(i);
+
+			Assert.assertEquals(_KEYS, record.keys());
+			Assert.assertEquals(expectedRecords.get(i).asMap(), record.asMap());
+		}
+	}
+
+	private static int _countSpillFiles() throws IOException {
+		int count = 0;
+
+		Path path = Paths.get(System.getProperty("java.io.tmpdir"));
+
+		try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(path, "neo4j-result-*.spill")) {
+			for (Path spillPath : directoryStream) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	private static Record _newRecord(long id, String name) {
+		return new InternalRecord(_KEYS, new Value[] {Values.value(name), Values.value(id)});
+	}
+
+	private static List<Record> _newRecords(int count, String name) {
+		List<Record> records = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			records.add(_newRecord(i, name));
+		}
+
+		return records;
+	}
+
+	private void _fail(HeapBudget.Reservation reservation) {
+		Assert.fail("Records were reserved from the heap budget");
+	}
+
+	private static final List<String> _KEYS = Collections.unmodifiableList(Arrays.asList("name", "id"));
+
+}
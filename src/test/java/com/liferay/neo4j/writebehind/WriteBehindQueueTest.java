@@ -0,0 +1,298 @@
+/**
+ * Copyright (c) 2000-present Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package com.liferay.neo4j.writebehind;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Mate Thurzo
+ */
+public class WriteBehindQueueTest {
+
+	@After
+	public void tearDown() {
+		if (_writeBehindQueue != null) {
+			_writeBehindQueue.close();
+		}
+	}
+
+	@Test
+	public void testAddAfterCloseWritesThrough() {
+		_writeBehindQueue = _newWriteBehindQueue(10, 10, WriteBehindOverflowPolicy.DISCARD);
+
+		_writeBehindQueue.close();
+
+		Assert.assertTrue(_writeBehindQueue.add("a", "a1", null));
+
+		Assert.assertEquals(Collections.singletonList("a1"), _getStatements());
+		Assert.assertEquals(0, _writeBehindQueue.getSize());
+		Assert.assertEquals(1, _writeBehindQueue.getFlushedCount());
+	}
+
+	@Test
+	public void testAddCoalescesWritesWithSameKey() {
+		_writeBehindQueue = _newWriteBehindQueue(10, 10, WriteBehindOverflowPolicy.DISCARD);
+
+		_writeBehindQueue.add("a", "a1", null);
+		_writeBehindQueue.add("b", "b1", null);
+		_writeBehindQueue.add(null, "c1", null);
+		_writeBehindQueue.add("a", "a2", null);
+		_writeBehindQueue.add(null, "c2", null);
+
+		Assert.assertEquals(4, _writeBehindQueue.getSize());
+		Assert.assertEquals(1, _writeBehindQueue.getCoalescedCount());
+
+		_writeBehindQueue.flush();
+
+		Assert.assertEquals(Arrays.asList("a2", "b1", "c1", "c2"), _getStatements());
+		Assert.assertEquals(4, _writeBehindQueue.getFlushedCount());
+		Assert.assertEquals(0, _writeBehindQueue.getSize());
+	}
+
+	@Test
+	public void testCloseDiscardsFailingWrites() {
+		_writeBehindQueue = _newWriteBehindQueue(10, 10, WriteBehindOverflowPolicy.DISCARD);
+
+		_failingStatements.add("bad");
+
+		_writeBehindQueue.add("a", "a1", null);
+		_writeBehindQueue.add("b", "bad", null);
+
+		_writeBehindQueue.close();
+
+		Assert.assertEquals(Collections.singletonList("a1"), _getStatements());
+		Assert.assertEquals(1, _writeBehindQueue.getDiscardedCount());
+		Assert.assertEquals(0, _writeBehindQueue.getSize());
+	}
+
+	@Test
+	public void testCloseFlushesInBatches() {
+		_writeBehindQueue = _newWriteBehindQueue(10, 2, WriteBehindOverflowPolicy.DISCARD);
+
+		for (int i = 0; i < 5; i++) {
+			_writeBehindQueue.add(String.valueOf(i), "s" + i, null);
+		}
+
+		_writeBehindQueue.close();
+
+		Assert.assertEquals(Arrays.asList("s0", "s1", "s2", "s3", "s4"), _getStatements());
+		Assert.assertEquals(5, _writeBehindQueue.getFlushedCount());
+
+		synchronized (_batchSizes) {
+			for (int batchSize : _batchSizes) {
+				Assert.assertTrue(batchSize <= 2);
+			}
+		}
+	}
+
+	@Test
+	public void testFailedBatchIsRetriedOneByOne() {
+		_writeBehindQueue = _newWriteBehindQueue(10, 10, WriteBehindOverflowPolicy.DISCARD);
+
+		_failingStatements.add("bad");
+
+		_writeBehindQueue.add("a", "a1", null);
+		_writeBehindQueue.add("b", "bad", null);
+		_writeBehindQueue.add("c", "c1", null);
+
+		_writeBehindQueue.flush();
+
+		Assert.assertEquals(Arrays.asList("a1", "c1"), _getStatements());
+		Assert.assertEquals(2, _writeBehindQueue.getFlushedCount());
+
+		for (int i = 0; (i < WriteBehindQueue.MAX_ATTEMPTS) && (_writeBehindQueue.getSize() > 0); i++) {
+			_writeBehindQueue.flush();
+		}
+
+		// The failing write fails once in the batch and then on each of its single attempts
+
+		Assert.assertEquals(1 + WriteBehindQueue.MAX_ATTEMPTS, _writeBehindQueue.getFailedBatchCount());
+		Assert.assertEquals(1, _writeBehindQueue.getDiscardedCount());
+		Assert.assertEquals(0, _writeBehindQueue.getSize());
+		Assert.assertEquals(Arrays.asList("a1", "c1"), _getStatements());
+	}
+
+	@Test
+	public void testFailedWriteIsNotRequeuedOverNewerWrite() {
+		_writeBehindQueue = _newWriteBehindQueue(10, 10, WriteBehindOverflowPolicy.DISCARD);
+
+		_failingStatements.add("bad");
+
+		_writeBehindQueue.add("a", "bad", null);
+
+		_batchWriterHook = () -> _writeBehindQueue.add("a", "a2", null);
+
+		_writeBehindQueue.flush();
+
+		_batchWriterHook = null;
+
+		Assert.assertEquals(1, _writeBehindQueue.getSize());
+
+		Assert.assertEquals(1, _writeBehindQueue.getCoalescedCount());
+		Assert.assertEquals(0, _writeBehindQueue.getDiscardedCount());
+
+		_failingStatements.clear();
+
+		_writeBehindQueue.flush();
+
+		Assert.assertEquals(Collections.singletonList("a2"), _getStatements());
+	}
+
+	@Test
+	public void testOverflowCallerRuns() {
+		_writeBehindQueue = _newWriteBehindQueue(1, 10, WriteBehindOverflowPolicy.CALLER_RUNS);
+
+		_writeBehindQueue.add("a", "a1", null);
+
+		Assert.assertTrue(_writeBehindQueue.add("b", "b1", null));
+
+		Assert.assertEquals(Collections.singletonList("b1"), _getStatements());
+		Assert.assertEquals(Collections.singletonList(Thread.currentThread()), _threads);
+		Assert.assertEquals(1, _writeBehindQueue.getSize());
+		Assert.assertEquals(0, _writeBehindQueue.getDiscardedCount());
+	}
+
+	@Test
+	public void testOverflowCallerRunsWaitsForSingleBatch() throws InterruptedException {
+		_writeBehindQueue = _newWriteBehindQueue(3, 1, WriteBehindOverflowPolicy.CALLER_RUNS);
+
+		CountDownLatch executingCountDownLatch = new CountDownLatch(1);
+		CountDownLatch releaseCountDownLatch = new CountDownLatch(1);
+
+		_batchWriterHook = () -> {
+			_batchWriterHook = null;
+
+			executingCountDownLatch.countDown();
+
+			try {
+				releaseCountDownLatch.await();
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		};
+
+		_writeBehindQueue.add("a", "a1", null);
+
+		Assert.assertTrue(executingCountDownLatch.await(10, TimeUnit.SECONDS));
+
+		_writeBehindQueue.add("b", "b1", null);
+		_writeBehindQueue.add("c", "c1", null);
+		_writeBehindQueue.add("d", "d1", null);
+
+		Thread thread = new Thread(() -> _writeBehindQueue.add("e", "e1", null));
+
+		thread.start();
+
+		while (thread.getState() != Thread.State.WAITING) {
+			Thread.sleep(1);
+		}
+
+		releaseCountDownLatch.countDown();
+
+		thread.join();
+
+		// The overflowing write only waited for the batch being executed, not for the pending writes
+
+		List<String> statements = _getStatements();
+
+		Assert.assertEquals(Arrays.asList("a1", "e1"), statements.subList(0, 2));
+	}
+
+	@Test
+	public void testOverflowDiscard() {
+		_writeBehindQueue = _newWriteBehindQueue(2, 10, WriteBehindOverflowPolicy.DISCARD);
+
+		Assert.assertTrue(_writeBehindQueue.add("a", "a1", null));
+		Assert.assertTrue(_writeBehindQueue.add("b", "b1", null));
+		Assert.assertFalse(_writeBehindQueue.add("c", "c1", null));
+
+		// Coalescing a pending write does not need room in the queue
+
+		Assert.assertTrue(_writeBehindQueue.add("a", "a2", null));
+
+		_writeBehindQueue.flush();
+
+		Assert.assertEquals(Arrays.asList("a2", "b1"), _getStatements());
+		Assert.assertEquals(1, _writeBehindQueue.getDiscardedCount());
+	}
+
+	@Test
+	public void testOverflowDiscardOldest() {
+		_writeBehindQueue = _newWriteBehindQueue(2, 10, WriteBehindOverflowPolicy.DISCARD_OLDEST);
+
+		_writeBehindQueue.add("a", "a1", null);
+		_writeBehindQueue.add("b", "b1", null);
+
+		Assert.assertTrue(_writeBehindQueue.add("c", "c1", null));
+
+		_writeBehindQueue.close();
+
+		Assert.assertEquals(Arrays.asList("b1", "c1"), _getStatements());
+		Assert.assertEquals(1, _writeBehindQueue.getDiscardedCount());
+	}
+
+	private List<String> _getStatements() {
+		synchronized (_statements) {
+			return new ArrayList<>(_statements);
+		}
+	}
+
+	private WriteBehindQueue _newWriteBehindQueue(
+		int capacity, int batchSize, WriteBehindOverflowPolicy overflowPolicy) {
+
+		return new WriteBehindQueue(
+			capacity, batchSize, TimeUnit.HOURS.toMillis(1), overflowPolicy,
+			(writes) -> {
+				Runnable batchWriterHook = _batchWriterHook;
+
+				if (batchWriterHook != null) {
+					batchWriterHook.run();
+				}
+
+				for (WriteBehindQueue.Write write : writes) {
+					if (_failingStatements.contains(write.getStatement())) {
+						throw new IllegalStateException("Unable to execute " + write.getStatement());
+					}
+				}
+
+				synchronized (_statements) {
+					for (WriteBehindQueue.Write write : writes) {
+						_statements.add(write.getStatement());
+					}
+
+					_batchSizes.add(writes.size());
+					_threads.add(Thread.currentThread());
+				}
+			});
+	}
+
+	private final List<Integer> _batchSizes = Collections.synchronizedList(new ArrayList<>());
+	private volatile Runnable _batchWriterHook;
+	private final List<String> _failingStatements = Collections.synchronizedList(new ArrayList<>());
+	private final List<String> _statements = new ArrayList<>();
+	private final List<Thread> _threads = Collections.synchronizedList(new ArrayList<>());
+	private WriteBehindQueue _writeBehindQueue;
+
+}